@@ -0,0 +1,53 @@
+package com.finance.insight;
+
+import com.finance.transaction.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsightAggregationBenchmark {
+  private static final String[] CATEGORIES = {
+    "Food & Dining", "Shopping", "Travel & Transport", "Bills & Utilities", "Subscriptions",
+    "Healthcare", "Entertainment", "Cash Withdrawal", "Transfers", "Uncategorized"
+  };
+
+  @Param({"100", "1000", "10000", "100000"})
+  public int transactionsPerMonth;
+
+  private final YearMonth month = YearMonth.of(2024, 10);
+  private List<Transaction> transactions;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(42);
+    transactions = new ArrayList<>(transactionsPerMonth);
+    for (int i = 0; i < transactionsPerMonth; i++) {
+      boolean credit = random.nextInt(20) == 0;
+      transactions.add(Transaction.builder()
+        .id(Integer.toHexString(i))
+        .userId("bench-user")
+        .amount(credit ? 20_000 + random.nextInt(50_000) : 50 + random.nextInt(5_000) + random.nextInt(100) / 100.0)
+        .merchant("MERCHANT " + random.nextInt(200))
+        .category(credit ? "Income" : CATEGORIES[random.nextInt(CATEGORIES.length)])
+        .type(credit ? "credit" : "debit")
+        .transactionDate(month.atDay(1 + random.nextInt(month.lengthOfMonth())))
+        .rawMessage("Rs " + i + " debited")
+        .build());
+    }
+  }
+
+  @Benchmark
+  public Insight summarize() {
+    return InsightCalculator.summarize("bench-user", month, transactions);
+  }
+}
@@ -0,0 +1,134 @@
+package com.finance.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop HTTP load test: {@code load.concurrency} workers each send the
+ * next request as soon as the previous one returns. Latencies recorded after
+ * the warmup are reported as percentiles together with the throughput, so
+ * runs against a backend started with VIRTUAL_THREADS=false and =true can be
+ * compared directly.
+ *
+ * <p>Without {@code load.token} a demo user token is fetched from
+ * {@code /api/auth/demo-login} first.
+ */
+public final class LoadTest {
+  private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+
+  private LoadTest() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    String baseUrl = System.getProperty("load.base-url", "http://localhost:8080");
+    String path = System.getProperty("load.path", "/api/transactions?limit=50");
+    int concurrency = Integer.getInteger("load.concurrency", 512);
+    Duration warmup = Duration.parse(System.getProperty("load.warmup", "PT10S"));
+    Duration duration = Duration.parse(System.getProperty("load.duration", "PT30S"));
+    String token = System.getProperty("load.token", "");
+
+    HttpClient client = HttpClient.newBuilder()
+      .connectTimeout(Duration.ofSeconds(5))
+      .executor(Executors.newFixedThreadPool(4))
+      .build();
+    if (token.isBlank()) {
+      token = demoToken(client, baseUrl);
+    }
+    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+      .header("Authorization", "Bearer " + token)
+      .timeout(Duration.ofSeconds(30))
+      .GET()
+      .build();
+
+    System.out.printf(Locale.ROOT, "GET %s%s, %d workers, warmup %ss, measuring %ss%n",
+      baseUrl, path, concurrency, warmup.toSeconds(), duration.toSeconds());
+
+    long start = System.nanoTime();
+    long measureFrom = start + warmup.toNanos();
+    long measureUntil = measureFrom + duration.toNanos();
+    ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+    List<Future<Worker>> futures = new ArrayList<>();
+    for (int i = 0; i < concurrency; i++) {
+      futures.add(workers.submit(() -> new Worker().run(client, request, measureFrom, measureUntil)));
+    }
+
+    long[] all = new long[0];
+    long errors = 0;
+    for (Future<Worker> f : futures) {
+      Worker w = f.get();
+      int offset = all.length;
+      all = Arrays.copyOf(all, offset + w.count);
+      System.arraycopy(w.latencies, 0, all, offset, w.count);
+      errors += w.errors;
+    }
+    workers.shutdown();
+    Arrays.sort(all);
+
+    double seconds = duration.toNanos() / 1e9;
+    System.out.printf(Locale.ROOT, "requests %d, errors %d, throughput %.1f req/s%n",
+      all.length, errors, all.length / seconds);
+    System.out.printf(Locale.ROOT, "latency ms: p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f%n",
+      percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99), percentile(all, 0.999),
+      all.length == 0 ? 0.0 : all[all.length - 1] / 1e6);
+    System.exit(0);
+  }
+
+  private static String demoToken(HttpClient client, String baseUrl) throws Exception {
+    HttpResponse<String> response = client.send(
+      HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/demo-login"))
+        .POST(HttpRequest.BodyPublishers.noBody())
+        .build(),
+      HttpResponse.BodyHandlers.ofString());
+    Matcher m = TOKEN.matcher(response.body());
+    if (response.statusCode() != 200 || !m.find()) {
+      throw new IllegalStateException("demo-login failed: " + response.statusCode() + " " + response.body());
+    }
+    return m.group(1);
+  }
+
+  private static double percentile(long[] sorted, double p) {
+    if (sorted.length == 0) return 0.0;
+    int idx = (int) Math.ceil(p * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(idx, sorted.length - 1))] / 1e6;
+  }
+
+  private static final class Worker {
+    long[] latencies = new long[1024];
+    int count;
+    long errors;
+
+    Worker run(HttpClient client, HttpRequest request, long measureFrom, long measureUntil) {
+      long now;
+      while ((now = System.nanoTime()) < measureUntil) {
+        boolean ok;
+        try {
+          HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+          ok = response.statusCode() / 100 == 2;
+        } catch (Exception e) {
+          ok = false;
+        }
+        long end = System.nanoTime();
+        if (now < measureFrom) continue;
+        if (!ok) {
+          errors++;
+          continue;
+        }
+        if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+        latencies[count++] = end - now;
+      }
+      return this;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.finance.security;
+
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+  private JwtService jwtService;
+  private String token;
+
+  @Setup
+  public void setup() {
+    jwtService = new JwtService("404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970", 3_600_000L, 10_000);
+    token = jwtService.generateToken("bench@example.com", Map.of("uid", "bench-user", "username", "bench"));
+  }
+
+  @Benchmark
+  public Claims parse() {
+    return jwtService.parse(token);
+  }
+
+  // Repeat requests with the same token, served from the verified-token cache
+  @Benchmark
+  public AuthenticatedUser authenticate() {
+    return jwtService.authenticate(token);
+  }
+}
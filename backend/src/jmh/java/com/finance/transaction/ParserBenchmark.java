@@ -0,0 +1,33 @@
+package com.finance.transaction;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+  @Param({"lean", "regex", "template"})
+  public String mode;
+
+  private TransactionParserService parser;
+
+  @Setup
+  public void setup() {
+    parser = new TransactionParserService(mode, new SimpleMeterRegistry());
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(12)
+  public void parseCorpus(Blackhole bh) {
+    for (String message : SmsCorpus.MESSAGES) {
+      bh.consume(parser.parse(message));
+    }
+  }
+}
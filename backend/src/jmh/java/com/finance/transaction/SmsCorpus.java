@@ -0,0 +1,22 @@
+package com.finance.transaction;
+
+/** Representative bank SMS formats (debit, credit, card, UPI, ATM, bill pay). */
+final class SmsCorpus {
+  static final String[] MESSAGES = {
+    "Your A/c XX1234 debited with Rs.2,500.00 on 15-11-24 at SWIGGY BANGALORE. Avl Bal: Rs.45,000.00",
+    "INR 1,250.00 debited from HDFC Bank A/c **4321 on 03/10/2024 to VPA zomato@hdfcbank (UPI Ref No 428765123456). Not you? Call 18002586161",
+    "Rs 499 spent on ICICI Bank Card XX9876 at AMAZON PAY INDIA on 2024-10-12. Avl Lmt: Rs 1,20,345.50",
+    "Dear Customer: Rs.50,000.00 credited to your A/c XX5678 on 01-10-24 by NEFT from ACME CORP SALARY. Avl Bal Rs.1,02,340.12",
+    "Acct XX2222 debited for INR 320.00 on 14-10-24; UBER INDIA credited. UPI:429012345678. Call 18001234 for dispute.",
+    "₹149 debited from your account for NETFLIX subscription on 05/10/24. Balance: ₹8,765.40",
+    "ATM WDL of Rs.10,000 from A/c XX1111 at SBI ATM MG ROAD on 11-10-2024. Avl bal: Rs.23,456.78",
+    "Sent Rs.780.00 From HDFC Bank A/C *6789 To PhonePe Merchant On 09/10/24 Ref 427890123456",
+    "Your electricity bill of Rs. 1,845.60 for BESCOM has been paid via UPI on 2024/10/08.",
+    "Spent INR 2,199 at FLIPKART INTERNET on your Axis Bank Credit Card ending 4455 on 07-10-24. Available limit INR 97,801",
+    "Rs 65.00 paid to METRO RAIL CORP on 06-10-24 via UPI. Bal Rs 4,210.55",
+    "Payment of Rs 3,200 to APOLLO PHARMACY successful on 04/10/2024. Avl bal Rs 12,000",
+  };
+
+  private SmsCorpus() {
+  }
+}
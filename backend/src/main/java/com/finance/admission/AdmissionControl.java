@@ -0,0 +1,158 @@
+package com.finance.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Admission in front of the expensive request paths. A request first takes
+ * tokens from its user's bucket for the pool (429 when the user is over
+ * their rate), then a slot from the pool's adaptive concurrency limiter,
+ * waiting briefly in a bounded queue when the pool is full (503 once the
+ * queue is full or the wait runs out). Rejections are cheap and carry a
+ * Retry-After, so a burst is shed at the door instead of piling up on Mongo.
+ */
+@Component
+public class AdmissionControl {
+
+  /** Operations that share a concurrency limit. */
+  public enum Pool {
+    /** SMS parse and save, manual entries and deletes */
+    WRITES,
+    /** Insight reads, which may regenerate months */
+    INSIGHTS,
+    /** Demo data seeding at login */
+    DEMO
+  }
+
+  /** A held slot; closing it gives the slot back. */
+  public final class Permit implements AutoCloseable {
+    private final ConcurrencyLimiter limiter;
+    private final int inFlightAtStart;
+    private final long start = System.nanoTime();
+    private boolean closed;
+
+    private Permit(ConcurrencyLimiter limiter, int inFlightAtStart) {
+      this.limiter = limiter;
+      this.inFlightAtStart = inFlightAtStart;
+    }
+
+    @Override
+    public void close() {
+      if (closed || limiter == null) return;
+      closed = true;
+      limiter.release(System.nanoTime() - start, inFlightAtStart);
+    }
+  }
+
+  private record PoolState(ConcurrencyLimiter limiter, TokenBuckets buckets) {
+  }
+
+  private record EndpointCounters(Counter admitted, Counter queued, Counter rateLimited, Counter shed) {
+  }
+
+  private final boolean enabled;
+  private final Duration maxWait;
+  private final MeterRegistry registry;
+  private final Map<Pool, PoolState> pools = new EnumMap<>(Pool.class);
+  private final ConcurrentHashMap<String, EndpointCounters> counters = new ConcurrentHashMap<>();
+  private final Permit unlimited = new Permit(null, 0);
+
+  public AdmissionControl(MeterRegistry registry,
+      @Value("${app.admission.enabled:true}") boolean enabled,
+      @Value("${app.admission.max-wait:100ms}") Duration maxWait,
+      @Value("${app.admission.queue-size:32}") int queueSize,
+      @Value("${app.admission.writes.max-limit:64}") int writesLimit,
+      @Value("${app.admission.writes.target-latency:500ms}") Duration writesTarget,
+      @Value("${app.admission.writes.user-rate:50}") double writesRate,
+      @Value("${app.admission.writes.user-burst:1000}") int writesBurst,
+      @Value("${app.admission.insights.max-limit:32}") int insightsLimit,
+      @Value("${app.admission.insights.target-latency:1s}") Duration insightsTarget,
+      @Value("${app.admission.insights.user-rate:10}") double insightsRate,
+      @Value("${app.admission.insights.user-burst:30}") int insightsBurst,
+      @Value("${app.admission.demo.max-limit:4}") int demoLimit,
+      @Value("${app.admission.demo.target-latency:5s}") Duration demoTarget) {
+    this.enabled = enabled;
+    this.maxWait = maxWait;
+    this.registry = registry;
+    pools.put(Pool.WRITES, pool(writesLimit, queueSize, writesTarget, writesRate, writesBurst));
+    pools.put(Pool.INSIGHTS, pool(insightsLimit, queueSize, insightsTarget, insightsRate, insightsBurst));
+    pools.put(Pool.DEMO, pool(demoLimit, queueSize, demoTarget, 0, 0));
+
+    pools.forEach((pool, state) -> {
+      String name = pool.name().toLowerCase(Locale.ROOT);
+      ConcurrencyLimiter limiter = state.limiter();
+      Gauge.builder("finance.admission.limit", limiter, ConcurrencyLimiter::limit)
+        .description("Current adaptive concurrency limit")
+        .tag("pool", name)
+        .register(registry);
+      Gauge.builder("finance.admission.in_flight", limiter, ConcurrencyLimiter::inFlight)
+        .tag("pool", name)
+        .register(registry);
+      Gauge.builder("finance.admission.waiting", limiter, ConcurrencyLimiter::waiting)
+        .description("Requests queued for a slot")
+        .tag("pool", name)
+        .register(registry);
+    });
+  }
+
+  /**
+   * Admits one request of {@code endpoint} (the metrics tag) to {@code pool},
+   * charging {@code cost} tokens to the user, or throws
+   * {@link AdmissionRejectedException}. A null user skips the per-user rate.
+   */
+  public Permit admit(String endpoint, Pool pool, String userId, int cost) {
+    if (!enabled) return unlimited;
+    EndpointCounters c = counters.computeIfAbsent(endpoint, this::endpointCounters);
+    PoolState state = pools.get(pool);
+
+    if (userId != null && state.buckets() != null) {
+      long waitNanos = state.buckets().take(userId, cost);
+      if (waitNanos > 0) {
+        c.rateLimited().increment();
+        throw new AdmissionRejectedException(429, Duration.ofNanos(waitNanos), "Too many requests");
+      }
+    }
+
+    ConcurrencyLimiter limiter = state.limiter();
+    int inFlight = limiter.tryAcquire();
+    if (inFlight < 0 && limiter.enqueue()) {
+      c.queued().increment();
+      inFlight = limiter.await(maxWait);
+    }
+    if (inFlight < 0) {
+      if (userId != null && state.buckets() != null) state.buckets().refund(userId, cost);
+      c.shed().increment();
+      throw new AdmissionRejectedException(503, limiter.latency(), "Server busy, retry later");
+    }
+    c.admitted().increment();
+    return new Permit(limiter, inFlight);
+  }
+
+  private static PoolState pool(int maxLimit, int queueSize, Duration targetLatency, double userRate,
+      int userBurst) {
+    return new PoolState(new ConcurrencyLimiter(maxLimit, queueSize, targetLatency),
+      userRate > 0 ? new TokenBuckets(userRate, userBurst) : null);
+  }
+
+  private EndpointCounters endpointCounters(String endpoint) {
+    return new EndpointCounters(outcomeCounter(endpoint, "admitted"), outcomeCounter(endpoint, "queued"),
+      outcomeCounter(endpoint, "rate_limited"), outcomeCounter(endpoint, "shed"));
+  }
+
+  private Counter outcomeCounter(String endpoint, String outcome) {
+    return Counter.builder("finance.admission.requests")
+      .description("Admission decisions; queued requests are also counted as admitted or shed")
+      .tag("endpoint", endpoint)
+      .tag("outcome", outcome)
+      .register(registry);
+  }
+}
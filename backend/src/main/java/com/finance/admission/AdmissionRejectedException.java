@@ -0,0 +1,26 @@
+package com.finance.admission;
+
+import java.time.Duration;
+
+/** A request turned away by {@link AdmissionControl}; answered with its status and a Retry-After. */
+public class AdmissionRejectedException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  private final int status;
+  private final Duration retryAfter;
+
+  public AdmissionRejectedException(int status, Duration retryAfter, String message) {
+    super(message);
+    this.status = status;
+    this.retryAfter = retryAfter;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  /** Whole seconds, at least one, as the Retry-After header wants them. */
+  public long getRetryAfterSeconds() {
+    return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+  }
+}
@@ -0,0 +1,120 @@
+package com.finance.admission;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Concurrency limit that follows latency (AIMD): every completed call feeds
+ * a short moving average of call latency. While that average stays under the
+ * target, a limiter that is actually busy raises its limit by one per limit's
+ * worth of calls; once it is over the target, every call cuts the limit by a
+ * few percent, so a backend that slows down gets fewer callers within a few
+ * dozen calls. The estimate is one immutable value swapped by CAS, so the
+ * limiter takes no locks; callers that find it full may wait in a short
+ * bounded queue.
+ */
+final class ConcurrencyLimiter {
+  private static final double ALPHA = 2.0 / (10 + 1);
+  private static final double BACKOFF = 0.02;
+
+  private record Estimate(double limit, double rtt, long samples) {
+    Estimate next(double sample, int inFlight, int maxLimit, double target) {
+      double rtt = samples == 0 ? sample : this.rtt + ALPHA * (sample - this.rtt);
+      double newLimit = limit;
+      if (rtt > target) {
+        newLimit = Math.max(1, limit * (1 - BACKOFF));
+      } else if (inFlight >= limit / 2) {
+        // A mostly idle limiter learns nothing about how much the backend can take
+        newLimit = Math.min(maxLimit, limit + 1 / limit);
+      }
+      return new Estimate(newLimit, rtt, samples + 1);
+    }
+  }
+
+  private final int maxLimit;
+  private final int queueSize;
+  private final double targetNanos;
+  private final AtomicReference<Estimate> estimate;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger waiting = new AtomicInteger();
+  private final ConcurrentLinkedQueue<Thread> waiters = new ConcurrentLinkedQueue<>();
+
+  ConcurrencyLimiter(int maxLimit, int queueSize, Duration targetLatency) {
+    this.maxLimit = Math.max(1, maxLimit);
+    this.queueSize = queueSize;
+    this.targetNanos = targetLatency.toNanos();
+    this.estimate = new AtomicReference<>(new Estimate(Math.max(1, this.maxLimit / 2), 0, 0));
+  }
+
+  int limit() {
+    return (int) estimate.get().limit();
+  }
+
+  int inFlight() {
+    return inFlight.get();
+  }
+
+  int waiting() {
+    return waiting.get();
+  }
+
+  /** Recent typical call latency, for telling shed callers when to come back. */
+  Duration latency() {
+    return Duration.ofNanos((long) estimate.get().rtt());
+  }
+
+  /** Takes a slot if the limit allows; returns the calls in flight before it, or -1. */
+  int tryAcquire() {
+    int limit = limit();
+    while (true) {
+      int n = inFlight.get();
+      if (n >= limit) return -1;
+      if (inFlight.compareAndSet(n, n + 1)) return n;
+    }
+  }
+
+  /** Reserves a place in the wait queue; false when it is full. */
+  boolean enqueue() {
+    while (true) {
+      int n = waiting.get();
+      if (n >= queueSize) return false;
+      if (waiting.compareAndSet(n, n + 1)) return true;
+    }
+  }
+
+  /** After {@link #enqueue}: waits up to {@code maxWait} for a slot, as {@link #tryAcquire}. */
+  int await(Duration maxWait) {
+    Thread me = Thread.currentThread();
+    waiters.add(me);
+    long deadline = System.nanoTime() + maxWait.toNanos();
+    int acquired = -1;
+    try {
+      while ((acquired = tryAcquire()) < 0) {
+        long left = deadline - System.nanoTime();
+        if (left <= 0 || me.isInterrupted()) return -1;
+        LockSupport.parkNanos(this, left);
+      }
+      return acquired;
+    } finally {
+      waiters.remove(me);
+      waiting.decrementAndGet();
+      // Two releases may have woken only this thread
+      if (acquired >= 0 && inFlight.get() < limit()) signal();
+    }
+  }
+
+  /** Gives the slot back and feeds the call's latency into the limit. */
+  void release(long rttNanos, int inFlightAtStart) {
+    inFlight.decrementAndGet();
+    estimate.updateAndGet(e -> e.next(rttNanos, inFlightAtStart + 1, maxLimit, targetNanos));
+    signal();
+  }
+
+  private void signal() {
+    Thread next = waiters.peek();
+    if (next != null) LockSupport.unpark(next);
+  }
+}
@@ -0,0 +1,51 @@
+package com.finance.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-key token buckets kept as a single theoretical arrival time each
+ * (GCRA), so taking tokens is one CAS. A key that stays idle long enough to
+ * refill completely is dropped; coming back it starts full, as it would anyway.
+ */
+final class TokenBuckets {
+  private final long intervalNanos;
+  private final long toleranceNanos;
+  private final int burst;
+  private final Cache<String, AtomicLong> arrivals;
+
+  TokenBuckets(double ratePerSecond, int burst) {
+    this.intervalNanos = (long) Math.ceil(1_000_000_000L / ratePerSecond);
+    this.burst = Math.max(1, burst);
+    this.toleranceNanos = intervalNanos * this.burst;
+    this.arrivals = Caffeine.newBuilder()
+      .expireAfterAccess(Duration.ofNanos(Math.max(toleranceNanos, Duration.ofMinutes(1).toNanos())))
+      .build();
+  }
+
+  /**
+   * Takes {@code cost} tokens (at most a full bucket) and returns 0, or takes
+   * nothing and returns the nanos until that many tokens will be there.
+   */
+  long take(String key, int cost) {
+    long needed = Math.min(Math.max(cost, 1), burst) * intervalNanos;
+    AtomicLong arrival = arrivals.get(key, k -> new AtomicLong(System.nanoTime()));
+    long now = System.nanoTime();
+    while (true) {
+      long current = arrival.get();
+      long next = (current - now < 0 ? now : current) + needed;
+      long wait = next - now - toleranceNanos;
+      if (wait > 0) return wait;
+      if (arrival.compareAndSet(current, next)) return 0;
+    }
+  }
+
+  /** Gives back tokens taken for a request that was shed afterwards. */
+  void refund(String key, int cost) {
+    AtomicLong arrival = arrivals.getIfPresent(key);
+    if (arrival != null) arrival.addAndGet(-Math.min(Math.max(cost, 1), burst) * intervalNanos);
+  }
+}
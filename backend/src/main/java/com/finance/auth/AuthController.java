@@ -20,6 +20,8 @@ public class AuthController {
   private final JwtService jwtService;
   private final AuthenticationManager authenticationManager;
   private final DemoDataService demoDataService;
+  // Demo password hash this node has already verified, so repeat demo logins skip BCrypt
+  private volatile String verifiedDemoHash;
 
   public AuthController(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtService jwtService,
       AuthenticationManager authenticationManager, DemoDataService demoDataService) {
@@ -71,17 +73,23 @@ public class AuthController {
           .passwordHash(passwordEncoder.encode(demoPassword))
           .build();
       userRepository.save(user);
-    } else {
+    } else if (!demoPasswordValid(user.getPasswordHash(), demoPassword)) {
       // Ensure password is correct in case it was changed or created differently
       user.setPasswordHash(passwordEncoder.encode(demoPassword));
       userRepository.save(user);
     }
+    verifiedDemoHash = user.getPasswordHash();
 
-    // Seed demo data if not already present
-    demoDataService.seedDemoData(user.getId());
+    // Seed demo data unless it is already at the current template version
+    demoDataService.ensureSeeded(user);
 
     String token = jwtService.generateToken(user.getEmail(),
         java.util.Map.of("uid", user.getId(), "username", user.getUsername()));
     return ResponseEntity.ok(new AuthResponse(token, user.getEmail(), user.getUsername()));
   }
+
+  private boolean demoPasswordValid(String hash, String password) {
+    if (hash == null) return false;
+    return hash.equals(verifiedDemoHash) || passwordEncoder.matches(password, hash);
+  }
 }
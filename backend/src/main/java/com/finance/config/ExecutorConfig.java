@@ -0,0 +1,49 @@
+package com.finance.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+  /**
+   * Fan-out pool for multi-month insight reads. Bounded on both threads and
+   * queue; when both are full the request thread runs the month itself.
+   */
+  @Bean
+  @ConditionalOnThreading(Threading.PLATFORM)
+  public ThreadPoolTaskExecutor insightRangeExecutor(
+      @Value("${app.insights.range.parallelism:4}") int parallelism,
+      @Value("${app.insights.range.queue-capacity:256}") int queueCapacity) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(parallelism);
+    executor.setMaxPoolSize(parallelism);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("insight-range-");
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    return executor;
+  }
+
+  /**
+   * Virtual-thread variant (spring.threads.virtual.enabled): a thread per month,
+   * with the concurrency limit standing in for the pool size so a range request
+   * still puts at most {@code parallelism} queries on the Mongo pool at once.
+   */
+  @Bean(name = "insightRangeExecutor")
+  @ConditionalOnThreading(Threading.VIRTUAL)
+  public SimpleAsyncTaskExecutor virtualInsightRangeExecutor(
+      @Value("${app.insights.range.parallelism:4}") int parallelism) {
+    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("insight-range-");
+    executor.setVirtualThreads(true);
+    executor.setConcurrencyLimit(parallelism);
+    return executor;
+  }
+}
@@ -1,5 +1,9 @@
 package com.finance.config;
 
+import com.finance.admission.AdmissionRejectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -8,12 +12,18 @@ import java.util.Map;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
+    private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<?> handleAdmissionRejected(AdmissionRejectedException e) {
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
 
     @ExceptionHandler(Exception.class)
     public ResponseEntity<?> handleAllExceptions(Exception e) {
-        System.out.println("GlobalExceptionHandler: Caught exception: " + e.getClass().getName());
-        System.out.println("GlobalExceptionHandler: Message: " + e.getMessage());
-        e.printStackTrace();
+        log.error("Unhandled {}: {}", e.getClass().getName(), e.getMessage(), e);
 
         return ResponseEntity.status(500).body(Map.of(
                 "error", e.getClass().getSimpleName(),
@@ -0,0 +1,205 @@
+package com.finance.config;
+
+import com.finance.insight.InsightRepository;
+import com.finance.insight.Rollup;
+import com.finance.insight.RollupRepository;
+import com.finance.insight.RollupService;
+import com.finance.transaction.MerchantDictionary;
+import com.finance.transaction.Transaction;
+import com.finance.transaction.TransactionCursor;
+import com.finance.transaction.TransactionQueries;
+import com.finance.transaction.TransactionRepository;
+import com.finance.user.UserRepository;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.repository.core.support.AbstractRepositoryMetadata;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Creates the indexes declared on the mapped documents at startup (Spring Boot
+ * leaves auto index creation off) and then explains a representative query for
+ * every repository method, warning about or failing on plans that fall back to
+ * a collection scan. Derived queries are probed from their method names and
+ * custom ones from the query factories the repositories call, so the probes
+ * cannot drift from what actually runs.
+ */
+@Component
+public class MongoIndexManager {
+  private static final Logger log = LoggerFactory.getLogger(MongoIndexManager.class);
+
+  enum CheckMode { OFF, WARN, FAIL }
+
+  record QueryProbe(String name, Class<?> entity, Query query) {
+  }
+
+  // Every declared method of these is a derived query
+  private static final List<Class<?>> DERIVED_REPOSITORIES = List.of(
+    TransactionRepository.class, InsightRepository.class, RollupRepository.class, UserRepository.class);
+
+  private final MongoTemplate mongoTemplate;
+  private final MongoMappingContext mappingContext;
+  private final CheckMode checkMode;
+
+  public MongoIndexManager(MongoTemplate mongoTemplate, MongoMappingContext mappingContext,
+      @Value("${app.mongo.index-check:warn}") String checkMode) {
+    this.mongoTemplate = mongoTemplate;
+    this.mappingContext = mappingContext;
+    this.checkMode = CheckMode.valueOf(checkMode.trim().toUpperCase(Locale.ROOT));
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onReady() {
+    ensureIndexes();
+    if (checkMode == CheckMode.FAIL) {
+      verifyQueryPlans();
+    } else if (checkMode == CheckMode.WARN) {
+      try {
+        verifyQueryPlans();
+      } catch (RuntimeException e) {
+        log.warn("Could not verify Mongo query plans: {}", e.getMessage());
+      }
+    }
+  }
+
+  void ensureIndexes() {
+    MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+    for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+      if (!entity.isAnnotationPresent(org.springframework.data.mongodb.core.mapping.Document.class)) {
+        continue;
+      }
+      IndexOperations ops = mongoTemplate.indexOps(entity.getType());
+      resolver.resolveIndexFor(entity.getTypeInformation()).forEach(index -> {
+        try {
+          ops.ensureIndex(index);
+        } catch (RuntimeException e) {
+          log.warn("Could not create index {} on {}: {}", index.getIndexKeys(), entity.getCollection(), e.getMessage());
+        }
+      });
+    }
+  }
+
+  void verifyQueryPlans() {
+    QueryMapper mapper = new QueryMapper(mongoTemplate.getConverter());
+    List<String> scans = new ArrayList<>();
+    for (QueryProbe probe : probes()) {
+      MongoPersistentEntity<?> entity = mappingContext.getPersistentEntity(probe.entity());
+      Document plan = mongoTemplate.getCollection(mongoTemplate.getCollectionName(probe.entity()))
+        .find(mapper.getMappedObject(probe.query().getQueryObject(), entity))
+        .sort(mapper.getMappedSort(probe.query().getSortObject(), entity))
+        .explain();
+      if (containsStage(plan.get("queryPlanner"), "COLLSCAN")) {
+        scans.add(probe.name());
+      }
+    }
+    if (scans.isEmpty()) {
+      log.info("Mongo query plans verified: every repository query uses an index");
+      return;
+    }
+    String message = "Repository queries planned as COLLSCAN: " + scans;
+    if (checkMode == CheckMode.FAIL) {
+      throw new IllegalStateException(message);
+    }
+    log.warn(message);
+  }
+
+  // Values are placeholders: the planner only needs the shape of each query
+  static List<QueryProbe> probes() {
+    List<QueryProbe> probes = new ArrayList<>();
+    for (Class<?> repository : DERIVED_REPOSITORIES) {
+      probes.addAll(derivedProbes(repository));
+    }
+
+    String userId = "index-check";
+    LocalDate from = LocalDate.EPOCH;
+    LocalDate to = LocalDate.now();
+    TransactionCursor after = new TransactionCursor(to, new ObjectId().toHexString());
+    probes.add(new QueryProbe("TransactionRepository.findRange", Transaction.class,
+      TransactionQueries.range(userId, from, to)));
+    probes.add(new QueryProbe("TransactionRepository.streamByUserId", Transaction.class,
+      TransactionQueries.range(userId, from, to)));
+    probes.add(new QueryProbe("TransactionRepository.findPage", Transaction.class,
+      TransactionQueries.page(userId, from, to, after, 1)));
+    probes.add(new QueryProbe("TransactionRepository.monthsSpanned", Transaction.class,
+      TransactionQueries.firstDate(userId, from, to, false)));
+    probes.add(new QueryProbe("TransactionRepository.monthsSpanned", Transaction.class,
+      TransactionQueries.firstDate(userId, from, to, true)));
+    probes.add(new QueryProbe("TransactionRepository.deleteRange", Transaction.class,
+      TransactionQueries.unordered(userId, from, to)));
+    probes.add(new QueryProbe("ReactiveTransactionRepository.streamByUserId", Transaction.class,
+      TransactionQueries.feed(userId, from, to)));
+    probes.add(new QueryProbe("TransactionCodec.merchantDictionary", MerchantDictionary.class,
+      TransactionQueries.merchantDictionary(userId)));
+    probes.add(new QueryProbe("RollupService.find", Rollup.class,
+      RollupService.findQuery(userId, Rollup.MONTH, "1970-01", "1970-12")));
+    return probes;
+  }
+
+  static List<QueryProbe> derivedProbes(Class<?> repository) {
+    Class<?> domain = AbstractRepositoryMetadata.getMetadata(repository).getDomainType();
+    List<QueryProbe> probes = new ArrayList<>();
+    for (Method method : repository.getDeclaredMethods()) {
+      String name = repository.getSimpleName() + "." + method.getName();
+      PartTree tree = new PartTree(method.getName(), domain);
+      Criteria criteria = null;
+      for (PartTree.OrPart or : tree) {
+        if (criteria != null) throw new IllegalStateException("No probe for Or queries: " + name);
+        for (Part part : or) {
+          String path = part.getProperty().toDotPath();
+          Object value = placeholder(part.getProperty().getLeafProperty().getType(), name);
+          criteria = criteria == null ? where(path) : criteria.and(path);
+          criteria = switch (part.getType()) {
+            case SIMPLE_PROPERTY -> criteria.is(value);
+            case IN -> criteria.in(List.of(value));
+            case BEFORE, LESS_THAN -> criteria.lt(value);
+            default -> throw new IllegalStateException("No probe for " + part.getType() + ": " + name);
+          };
+        }
+      }
+      probes.add(new QueryProbe(name, domain, new Query(criteria).with(tree.getSort())));
+    }
+    return probes;
+  }
+
+  private static Object placeholder(Class<?> type, String probe) {
+    if (type == String.class) return "index-check";
+    if (type == LocalDate.class) return LocalDate.EPOCH;
+    throw new IllegalStateException("No placeholder for " + type.getSimpleName() + ": " + probe);
+  }
+
+  private static boolean containsStage(Object node, String stage) {
+    if (node instanceof Document doc) {
+      if (stage.equals(doc.get("stage"))) return true;
+      for (Object value : doc.values()) {
+        if (containsStage(value, stage)) return true;
+      }
+    } else if (node instanceof List<?> list) {
+      for (Object value : list) {
+        if (containsStage(value, stage)) return true;
+      }
+    }
+    return false;
+  }
+}
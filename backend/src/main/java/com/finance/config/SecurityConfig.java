@@ -1,6 +1,7 @@
 package com.finance.config;
 
 import com.finance.security.JwtAuthFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -34,6 +35,12 @@ public class SecurityConfig {
   @Value("${cors.allowed-origins}")
   private String allowedOrigins;
 
+  @Value("${server.port:8080}")
+  private int serverPort;
+
+  @Value("${management.server.port:-1}")
+  private int managementPort;
+
   public SecurityConfig(JwtService jwtService, UserDetailsService userDetailsService) {
     this.jwtService = jwtService;
     this.userDetailsService = userDetailsService;
@@ -41,7 +48,7 @@ public class SecurityConfig {
 
   @Bean
   public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
-    JwtAuthFilter jwtAuthFilter = new JwtAuthFilter(jwtService, userDetailsService);
+    JwtAuthFilter jwtAuthFilter = new JwtAuthFilter(jwtService);
 
     http
         .csrf(csrf -> csrf.disable())
@@ -49,9 +56,13 @@ public class SecurityConfig {
         .securityContext(sc -> sc.requireExplicitSave(false))
         .cors(cors -> cors.configurationSource(corsConfigurationSource()))
         .authorizeHttpRequests(auth -> auth
+            // Streamed responses finish on an async dispatch; the original request was already authorized
+            .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
             .requestMatchers("/health").permitAll()
             .requestMatchers("/debug/**").permitAll()
-            .requestMatchers("/actuator/health").permitAll()
+            // Actuator is left open only on its own port, which management.server.address keeps local
+            .requestMatchers(request -> managementPort > 0 && managementPort != serverPort
+                && request.getLocalPort() == managementPort).permitAll()
             .requestMatchers("/api/auth/**").permitAll()
             .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
             .anyRequest().authenticated())
@@ -90,7 +101,7 @@ public class SecurityConfig {
 
     config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
     config.setAllowedHeaders(List.of("*"));
-    config.setExposedHeaders(List.of("Authorization", "Content-Type"));
+    config.setExposedHeaders(List.of("Authorization", "Content-Type", "ETag"));
     config.setAllowCredentials(true);
     config.setMaxAge(3600L);
 
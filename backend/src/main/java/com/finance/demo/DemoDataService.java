@@ -1,52 +1,197 @@
 package com.finance.demo;
 
+import com.finance.admission.AdmissionControl;
+import com.finance.admission.AdmissionControl.Permit;
+import com.finance.admission.AdmissionControl.Pool;
 import com.finance.insight.Insight;
+import com.finance.insight.InsightCalculator;
 import com.finance.insight.InsightRepository;
 import com.finance.insight.InsightService;
+import com.finance.insight.InsightUpdateScheduler;
+import com.finance.insight.RollupRepository;
+import com.finance.insight.RollupService;
+import com.finance.transaction.DataVersions;
+import com.finance.transaction.SmsDeduplicator;
 import com.finance.transaction.Transaction;
+import com.finance.transaction.TransactionCache;
 import com.finance.transaction.TransactionRepository;
+import com.finance.user.User;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Seeds the demo tenant from a template that is built once per template
+ * version (it only changes with the month and on the first days of a month).
+ * A user whose marker already names the current version is left alone, so a
+ * demo login normally costs no writes at all.
+ */
 @Service
 public class DemoDataService {
+        // Bump when the fixture below changes so existing demo tenants are reseeded
+        private static final int TEMPLATE_REVISION = 1;
 
-        private final TransactionRepository transactionRepository;
+        private record Template(String version, YearMonth month, List<Transaction> transactions, Insight insight) {
+        }
+
+        private final MongoTemplate mongoTemplate;
         private final InsightRepository insightRepository;
         private final InsightService insightService;
-
-        public DemoDataService(TransactionRepository transactionRepository,
+        private final RollupRepository rollupRepository;
+        private final RollupService rollupService;
+        private final TransactionCache transactionCache;
+        private final TransactionRepository transactionRepository;
+        private final SmsDeduplicator dedup;
+        private final InsightUpdateScheduler insightUpdates;
+        private final DataVersions dataVersions;
+        private final AdmissionControl admission;
+        private final AtomicReference<Template> template = new AtomicReference<>();
+        private final Object seedLock = new Object();
+
+        public DemoDataService(MongoTemplate mongoTemplate,
                         InsightRepository insightRepository,
-                        InsightService insightService) {
-                this.transactionRepository = transactionRepository;
+                        InsightService insightService,
+                        RollupRepository rollupRepository,
+                        RollupService rollupService,
+                        TransactionCache transactionCache,
+                        TransactionRepository transactionRepository,
+                        SmsDeduplicator dedup,
+                        InsightUpdateScheduler insightUpdates,
+                        DataVersions dataVersions,
+                        AdmissionControl admission) {
+                this.mongoTemplate = mongoTemplate;
                 this.insightRepository = insightRepository;
                 this.insightService = insightService;
+                this.rollupRepository = rollupRepository;
+                this.rollupService = rollupService;
+                this.transactionCache = transactionCache;
+                this.transactionRepository = transactionRepository;
+                this.dedup = dedup;
+                this.insightUpdates = insightUpdates;
+                this.dataVersions = dataVersions;
+                this.admission = admission;
         }
 
-        public void seedDemoData(String userId) {
-                // For demo users, always refresh demo data to ensure current month data exists
-                // Delete old demo transactions and insights
-                transactionRepository.deleteByUserId(userId);
+        /** Brings the user's demo data up to the current template version if it is not there already. */
+        @SuppressWarnings("try")
+        public void ensureSeeded(User user) {
+                Template current = template();
+                if (current.version().equals(user.getDemoDataVersion())) {
+                        return;
+                }
+                // Concurrent logins on this node seed once; the others find the marker set
+                try (Permit ignored = admission.admit("auth.demo", Pool.DEMO, null, 1)) {
+                        synchronized (seedLock) {
+                                User stored = mongoTemplate.findById(user.getId(), User.class);
+                                if (stored != null && current.version().equals(stored.getDemoDataVersion())) {
+                                        return;
+                                }
+                                seed(user.getId(), current);
+                        }
+                }
+        }
+
+        private void seed(String userId, Template current) {
+                // Ids derive from the user and version, so the bulk is idempotent across nodes
+                List<Transaction> transactions = new ArrayList<>(current.transactions().size());
+                List<ObjectId> ids = new ArrayList<>(current.transactions().size());
+                for (int i = 0; i < current.transactions().size(); i++) {
+                        Transaction t = current.transactions().get(i);
+                        ObjectId id = templateId(userId, current.version(), i);
+                        ids.add(id);
+                        transactions.add(Transaction.builder()
+                                        .id(id.toHexString())
+                                        .userId(userId)
+                                        .amount(t.getAmount())
+                                        .merchant(t.getMerchant())
+                                        .category(t.getCategory())
+                                        .type(t.getType())
+                                        .transactionDate(t.getTransactionDate())
+                                        .rawMessage(t.getRawMessage())
+                                        .balance(t.getBalance())
+                                        .build());
+                }
+                // Every month holding the rows about to be replaced, as a range delete would see them
+                List<YearMonth> months = transactionRepository.monthsSpanned(userId, null, null);
+                BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Transaction.class);
+                bulk.remove(new Query(where("userId").is(userId).and("_id").nin(ids)));
+                for (Transaction t : transactions) {
+                        bulk.replaceOne(new Query(where("_id").is(t.getId())), t, FindAndReplaceOptions.options().upsert());
+                }
+                bulk.execute();
+                transactionCache.evict(userId);
+                dedup.forget(userId, null, null);
+                insightUpdates.invalidate(userId, months);
+
+                // Precomputed insight and rollups instead of aggregating what was just written
+                Insight insight = current.insight();
                 insightRepository.deleteByUserId(userId);
+                insightRepository.insert(Insight.builder()
+                                .userId(userId)
+                                .month(insight.getMonth())
+                                .total_spend(insight.getTotal_spend())
+                                .total_income(insight.getTotal_income())
+                                .category_summary(insight.getCategory_summary())
+                                .recommendations(insight.getRecommendations())
+                                .top_merchants(insight.getTop_merchants())
+                                .merchant_totals(insight.getMerchant_totals())
+                                .build());
+                insightService.evict(userId);
+                rollupRepository.deleteByUserId(userId);
+                rollupService.apply(userId, transactions, 1);
+                dataVersions.bump(userId);
+
+                mongoTemplate.updateFirst(new Query(where("_id").is(userId)),
+                                new Update().set("demoDataVersion", current.version()), User.class);
+        }
 
-                // Create sample transactions
-                List<Transaction> transactions = createSampleTransactions(userId);
-                transactionRepository.saveAll(transactions);
+        private Template template() {
+                LocalDate today = LocalDate.now();
+                // The fixture only depends on the month and, on days 1-4, on the day
+                String version = TEMPLATE_REVISION + ":" + YearMonth.from(today) + ":" + Math.min(today.getDayOfMonth(), 4);
+                Template current = template.get();
+                if (current != null && current.version().equals(version)) {
+                        return current;
+                }
+                List<Transaction> transactions = List.copyOf(createSampleTransactions(null, today));
+                YearMonth month = YearMonth.from(today);
+                Template built = new Template(version, month, transactions,
+                                InsightCalculator.summarize(null, month, transactions));
+                template.set(built);
+                return built;
+        }
 
-                // Generate insight from actual transactions (not hardcoded)
-                String currentMonth = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM"));
-                insightService.generateAndUpsert(userId, currentMonth);
+        private static ObjectId templateId(String userId, String version, int index) {
+                try {
+                        byte[] digest = MessageDigest.getInstance("SHA-256")
+                                        .digest((userId + "|" + version + "|" + index).getBytes(StandardCharsets.UTF_8));
+                        return new ObjectId(Arrays.copyOf(digest, 12));
+                } catch (NoSuchAlgorithmException e) {
+                        throw new IllegalStateException(e);
+                }
         }
 
-        private List<Transaction> createSampleTransactions(String userId) {
+        private List<Transaction> createSampleTransactions(String userId, LocalDate today) {
                 List<Transaction> transactions = new ArrayList<>();
-                LocalDate today = LocalDate.now();
                 // Use dates within the current month (days 1-4 to be safe)
                 LocalDate currentMonthStart = today.withDayOfMonth(1);
                 int maxDay = Math.min(today.getDayOfMonth(), 4);
@@ -0,0 +1,312 @@
+package com.finance.demo;
+
+import com.finance.insight.InsightRepository;
+import com.finance.insight.InsightService;
+import com.finance.insight.RollupRepository;
+import com.finance.insight.RollupService;
+import com.finance.transaction.DataVersions;
+import com.finance.transaction.Transaction;
+import com.finance.transaction.TransactionCache;
+import com.finance.transaction.TransactionRepository;
+import com.finance.user.User;
+import com.finance.user.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fills the database with synthetic users for load and capacity tests
+ * (app.demo.generator.enabled): {@code users} users, each with {@code months}
+ * months of history ending today and on average {@code per-day} transactions a
+ * day. Merchants, categories and amounts follow fixed weighted distributions,
+ * and every raw message is an SMS that {@link com.finance.transaction.TransactionParserService}
+ * parses back into the stored fields. Rows go to Mongo in unordered bulk
+ * inserts of {@code batch-size}; rollups are written per user and insights are
+ * left to be computed on first read.
+ *
+ * <p>Output is deterministic for a given seed, and a rerun replaces the data of
+ * the users it generates. Users sign in as {@code synthetic-<n>@<email-domain>}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.demo.generator", name = "enabled", havingValue = "true")
+public class SyntheticDataGenerator implements ApplicationRunner {
+  private static final Logger log = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+  private static final DateTimeFormatter SMS_DATE = DateTimeFormatter.ofPattern("dd-MM-yy");
+
+  // Names carry the parser's category keywords; median and spread describe a log-normal amount
+  private record Merchant(String name, String category, double median, double spread, int weight) {
+  }
+
+  private static final List<Merchant> MERCHANTS = List.of(
+    new Merchant("Swiggy", "Food & Dining", 380, 0.5, 90),
+    new Merchant("Zomato", "Food & Dining", 420, 0.5, 80),
+    new Merchant("Dominos Pizza", "Food & Dining", 550, 0.4, 25),
+    new Merchant("Cafe Coffee Day", "Food & Dining", 260, 0.4, 30),
+    new Merchant("Burger King", "Food & Dining", 330, 0.4, 20),
+    new Merchant("Amazon", "Shopping", 1200, 1.0, 60),
+    new Merchant("Flipkart", "Shopping", 1500, 1.0, 40),
+    new Merchant("Myntra", "Shopping", 1800, 0.7, 20),
+    new Merchant("Reliance Store", "Shopping", 900, 0.8, 35),
+    new Merchant("Uber", "Travel & Transport", 280, 0.6, 60),
+    new Merchant("Ola", "Travel & Transport", 250, 0.6, 40),
+    new Merchant("Rapido", "Travel & Transport", 90, 0.5, 30),
+    new Merchant("Indian Oil Petrol", "Travel & Transport", 1500, 0.4, 25),
+    new Merchant("Namma Metro", "Travel & Transport", 60, 0.3, 40),
+    new Merchant("BESCOM Electricity", "Bills & Utilities", 1400, 0.5, 4),
+    new Merchant("Airtel Broadband", "Bills & Utilities", 999, 0.1, 4),
+    new Merchant("Jio Recharge", "Bills & Utilities", 299, 0.3, 6),
+    new Merchant("Netflix", "Subscriptions", 649, 0.0, 3),
+    new Merchant("Spotify", "Subscriptions", 119, 0.0, 3),
+    new Merchant("Hotstar", "Subscriptions", 299, 0.0, 2),
+    new Merchant("Apollo Pharmacy", "Healthcare", 450, 0.8, 12),
+    new Merchant("City Hospital", "Healthcare", 2500, 1.0, 3),
+    new Merchant("PVR Cinema", "Entertainment", 600, 0.4, 10),
+    new Merchant("Steam Game", "Entertainment", 800, 0.6, 5),
+    new Merchant("SBI ATM", "Cash Withdrawal", 2000, 0.5, 15),
+    new Merchant("Rahul Sharma", "Transfers", 1500, 1.0, 20),
+    new Merchant("Priya Nair", "Transfers", 800, 1.0, 15),
+    new Merchant("Decathlon", "Uncategorized", 2200, 0.7, 8),
+    new Merchant("Chai Point", "Uncategorized", 90, 0.4, 15));
+
+  private static final int TOTAL_WEIGHT = MERCHANTS.stream().mapToInt(Merchant::weight).sum();
+
+  private final MongoTemplate mongoTemplate;
+  private final UserRepository userRepository;
+  private final TransactionRepository transactionRepository;
+  private final InsightRepository insightRepository;
+  private final InsightService insightService;
+  private final RollupRepository rollupRepository;
+  private final RollupService rollupService;
+  private final TransactionCache transactionCache;
+  private final DataVersions dataVersions;
+  private final PasswordEncoder passwordEncoder;
+  private final int users;
+  private final int months;
+  private final double perDay;
+  private final int batchSize;
+  private final int threads;
+  private final long seed;
+  private final String emailDomain;
+  private final String password;
+
+  public SyntheticDataGenerator(MongoTemplate mongoTemplate, UserRepository userRepository,
+      TransactionRepository transactionRepository, InsightRepository insightRepository, InsightService insightService,
+      RollupRepository rollupRepository, RollupService rollupService, TransactionCache transactionCache,
+      DataVersions dataVersions, PasswordEncoder passwordEncoder,
+      @Value("${app.demo.generator.users:100}") int users,
+      @Value("${app.demo.generator.months:12}") int months,
+      @Value("${app.demo.generator.per-day:5}") double perDay,
+      @Value("${app.demo.generator.batch-size:10000}") int batchSize,
+      @Value("${app.demo.generator.threads:4}") int threads,
+      @Value("${app.demo.generator.seed:42}") long seed,
+      @Value("${app.demo.generator.email-domain:synthetic.local}") String emailDomain,
+      @Value("${app.demo.generator.password:synthetic}") String password) {
+    this.mongoTemplate = mongoTemplate;
+    this.userRepository = userRepository;
+    this.transactionRepository = transactionRepository;
+    this.insightRepository = insightRepository;
+    this.insightService = insightService;
+    this.rollupRepository = rollupRepository;
+    this.rollupService = rollupService;
+    this.transactionCache = transactionCache;
+    this.dataVersions = dataVersions;
+    this.passwordEncoder = passwordEncoder;
+    this.users = users;
+    this.months = months;
+    this.perDay = perDay;
+    this.batchSize = batchSize;
+    this.threads = threads;
+    this.seed = seed;
+    this.emailDomain = emailDomain;
+    this.password = password;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) throws Exception {
+    log.info("Generating {} users x {} months x {} transactions/day", users, months, perDay);
+    long start = System.nanoTime();
+    String passwordHash = passwordEncoder.encode(password);
+    AtomicLong inserted = new AtomicLong();
+
+    // Each worker takes every threads-th user and keeps its own insert buffer
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> workers = new ArrayList<>();
+      for (int w = 0; w < threads; w++) {
+        int first = w;
+        workers.add(pool.submit(() -> {
+          List<Transaction> batch = new ArrayList<>(batchSize);
+          for (int n = first; n < users; n += threads) {
+            generateUser(n, passwordHash, batch, inserted);
+          }
+          flush(batch, inserted);
+          return null;
+        }));
+      }
+      for (Future<?> worker : workers) {
+        worker.get();
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+
+    double seconds = (System.nanoTime() - start) / 1e9;
+    log.info("Generated {} transactions for {} users in {}s ({} rows/s)",
+      inserted.get(), users, Math.round(seconds), Math.round(inserted.get() / Math.max(seconds, 1e-3)));
+  }
+
+  private void generateUser(int n, String passwordHash, List<Transaction> batch, AtomicLong inserted) {
+    String email = "synthetic-" + n + "@" + emailDomain;
+    User user = userRepository.findByEmail(email).orElse(null);
+    if (user == null) {
+      user = userRepository.save(User.builder().email(email).username("synthetic-" + n).passwordHash(passwordHash).build());
+    } else {
+      transactionRepository.deleteByUserId(user.getId());
+      insightRepository.deleteByUserId(user.getId());
+      rollupRepository.deleteByUserId(user.getId());
+    }
+    String userId = user.getId();
+
+    List<Transaction> txs = transactions(userId, new SplittableRandom(seed * 1_000_003L + n));
+    for (Transaction t : txs) {
+      batch.add(t);
+      if (batch.size() >= batchSize) flush(batch, inserted);
+    }
+    rollupService.apply(userId, txs, 1);
+    transactionCache.evict(userId);
+    insightService.evict(userId);
+    dataVersions.bump(userId);
+  }
+
+  private void flush(List<Transaction> batch, AtomicLong inserted) {
+    if (batch.isEmpty()) return;
+    BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Transaction.class);
+    bulk.insert(batch);
+    bulk.execute();
+    long total = inserted.addAndGet(batch.size());
+    if (total / 1_000_000 != (total - batch.size()) / 1_000_000) {
+      log.info("Inserted {} transactions", total);
+    }
+    batch.clear();
+  }
+
+  private List<Transaction> transactions(String userId, SplittableRandom rnd) {
+    LocalDate today = LocalDate.now();
+    LocalDate day = YearMonth.from(today).minusMonths(months - 1L).atDay(1);
+    String account = String.format(Locale.ROOT, "XX%04d", rnd.nextInt(10_000));
+    String employer = rnd.nextBoolean() ? "Acme Corp" : "Globex Ltd";
+    double salary = round(lognormal(rnd, 60_000, 0.5));
+    double balance = round(salary * (1 + rnd.nextDouble()));
+
+    List<Transaction> txs = new ArrayList<>();
+    for (; !day.isAfter(today); day = day.plusDays(1)) {
+      if (day.getDayOfMonth() == 1) {
+        balance = round(balance + salary);
+        txs.add(transaction(userId, day, salary, employer, "Income", "credit", balance,
+          String.format(Locale.ROOT, "INR %s credited to a/c %s from %s on %s (salary). Avl bal INR %s",
+            money(salary), account, employer, SMS_DATE.format(day), money(balance))));
+      }
+      int count = poisson(rnd, perDay);
+      for (int i = 0; i < count; i++) {
+        Merchant m = pick(rnd);
+        // Spending never overdraws; an empty account just records small amounts
+        double amount = Math.min(round(Math.max(1, lognormal(rnd, m.median(), m.spread()))), Math.max(1, balance));
+        balance = round(Math.max(0, balance - amount));
+        txs.add(transaction(userId, day, amount, m.name(), m.category(), "debit", balance, debitSms(rnd, m, amount,
+          account, day, balance)));
+      }
+    }
+    return txs;
+  }
+
+  private static String debitSms(SplittableRandom rnd, Merchant m, double amount, String account, LocalDate day,
+      double balance) {
+    String date = SMS_DATE.format(day);
+    return switch (m.category()) {
+      case "Cash Withdrawal" -> String.format(Locale.ROOT, "Rs.%s withdrawn from a/c %s at %s on %s. Avl bal Rs.%s",
+        money(amount), account, m.name(), date, money(balance));
+      case "Transfers" -> String.format(Locale.ROOT, "Rs.%s sent by IMPS from a/c %s to %s on %s. Avl bal Rs.%s",
+        money(amount), account, m.name(), date, money(balance));
+      default -> rnd.nextBoolean()
+        ? String.format(Locale.ROOT, "Rs.%s debited from a/c %s at %s on %s. Avl bal Rs.%s",
+          money(amount), account, m.name(), date, money(balance))
+        : String.format(Locale.ROOT, "INR %s spent on card %s at %s on %s. Avl bal INR %s",
+          money(amount), account, m.name(), date, money(balance));
+    };
+  }
+
+  private static Transaction transaction(String userId, LocalDate date, double amount, String merchant,
+      String category, String type, double balance, String rawMessage) {
+    return Transaction.builder()
+      .userId(userId)
+      .amount(amount)
+      .merchant(merchant)
+      .category(category)
+      .type(type)
+      .transactionDate(date)
+      .rawMessage(rawMessage)
+      .balance(balance)
+      .build();
+  }
+
+  private static Merchant pick(SplittableRandom rnd) {
+    int r = rnd.nextInt(TOTAL_WEIGHT);
+    for (Merchant m : MERCHANTS) {
+      r -= m.weight();
+      if (r < 0) return m;
+    }
+    return MERCHANTS.get(MERCHANTS.size() - 1);
+  }
+
+  private static int poisson(SplittableRandom rnd, double mean) {
+    if (mean <= 0) return 0;
+    if (mean > 30) {
+      return (int) Math.max(0, Math.round(mean + Math.sqrt(mean) * gaussian(rnd)));
+    }
+    double limit = Math.exp(-mean);
+    double p = rnd.nextDouble();
+    int k = 0;
+    while (p > limit) {
+      p *= rnd.nextDouble();
+      k++;
+    }
+    return k;
+  }
+
+  private static double lognormal(SplittableRandom rnd, double median, double spread) {
+    return median * Math.exp(spread * gaussian(rnd));
+  }
+
+  private static double gaussian(SplittableRandom rnd) {
+    // Box-Muller; SplittableRandom has no nextGaussian on Java 17
+    return Math.sqrt(-2 * Math.log(1 - rnd.nextDouble())) * Math.cos(2 * Math.PI * rnd.nextDouble());
+  }
+
+  private static double round(double value) {
+    return Math.round(value * 100) / 100.0;
+  }
+
+  private static String money(double value) {
+    return String.format(Locale.ROOT, "%,.2f", value);
+  }
+}
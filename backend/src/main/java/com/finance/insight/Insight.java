@@ -1,5 +1,6 @@
 package com.finance.insight;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -27,6 +28,15 @@ public class Insight {
   private Map<String, Double> category_summary;
   private String recommendations;
   private List<TopMerchant> top_merchants;
+  // Debit totals per merchant, maintained incrementally; top_merchants is derived from it
+  @JsonIgnore
+  private Map<String, Double> merchant_totals;
+  // Bumped on every incremental update so derived fields are only written by the latest writer
+  @JsonIgnore
+  private long revision;
+  // Set when an incremental update could not be applied; the next read rebuilds the month
+  @JsonIgnore
+  private boolean dirty;
 
   @Data
   @NoArgsConstructor
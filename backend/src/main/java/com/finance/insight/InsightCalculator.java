@@ -0,0 +1,179 @@
+package com.finance.insight;
+
+import com.finance.transaction.Transaction;
+
+import java.time.YearMonth;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Pure aggregation and recommendation logic shared by the full rebuild and the
+ * incremental (delta) maintenance paths of {@link InsightService}.
+ */
+public final class InsightCalculator {
+  private static final double EPSILON = 0.005;
+  private static final String NULL_MERCHANT = "%N";
+  private static final String EMPTY_MERCHANT = "%E";
+
+  private InsightCalculator() {
+  }
+
+  public static Insight summarize(String userId, YearMonth ym, Collection<Transaction> txs) {
+    double totalSpend = 0;
+    double totalIncome = 0;
+    Map<String, Double> categorySummary = new HashMap<>();
+    Map<String, Double> merchantSummary = new HashMap<>();
+    for (Transaction t : txs) {
+      if ("debit".equalsIgnoreCase(t.getType())) {
+        totalSpend += t.getAmount();
+        merchantSummary.merge(t.getMerchant(), t.getAmount(), Double::sum);
+      } else if ("credit".equalsIgnoreCase(t.getType())) {
+        totalIncome += t.getAmount();
+      }
+      categorySummary.merge(t.getCategory(), t.getAmount(), Double::sum);
+    }
+
+    return fromTotals(userId, ym, totalSpend, totalIncome, categorySummary, merchantSummary);
+  }
+
+  /** Builds the month's insight from totals that were already grouped, e.g. by a Mongo pipeline. */
+  public static Insight fromTotals(String userId, YearMonth ym, double totalSpend, double totalIncome,
+      Map<String, Double> categorySummary, Map<String, Double> merchantTotals) {
+    Insight insight = new Insight();
+    insight.setUserId(userId);
+    insight.setMonth(ym.toString());
+    insight.setTotal_spend(totalSpend);
+    insight.setTotal_income(totalIncome);
+    insight.setCategory_summary(categorySummary);
+    Map<String, Double> stored = new HashMap<>();
+    merchantTotals.forEach((merchant, amount) -> stored.merge(merchantKey(merchant), amount, Double::sum));
+    insight.setMerchant_totals(stored);
+    derive(insight);
+    return insight;
+  }
+
+  /**
+   * Derives the presentation fields (top merchants, recommendations) from the
+   * running totals, dropping entries that incremental updates have brought back to zero.
+   */
+  public static void finish(Insight insight) {
+    Map<String, Double> categorySummary = prune(insight.getCategory_summary());
+    Map<String, Double> merchantTotals = prune(insight.getMerchant_totals());
+    insight.setCategory_summary(categorySummary);
+    insight.setMerchant_totals(merchantTotals);
+    derive(insight);
+  }
+
+  private static void derive(Insight insight) {
+    List<Insight.TopMerchant> topMerchants = topMerchants(insight.getMerchant_totals());
+    insight.setTop_merchants(topMerchants);
+    insight.setRecommendations(recommendations(insight.getTotal_spend(), insight.getTotal_income(),
+      insight.getCategory_summary(), topMerchants));
+  }
+
+  static List<Insight.TopMerchant> topMerchants(Map<String, Double> merchantTotals) {
+    return merchantTotals.entrySet().stream()
+      .map(e -> new Insight.TopMerchant(merchantName(e.getKey()), e.getValue()))
+      .sorted((a, b) -> Double.compare(b.getAmount(), a.getAmount()))
+      .limit(5)
+      .collect(Collectors.toList());
+  }
+
+  static Map<String, Double> prune(Map<String, Double> map) {
+    Map<String, Double> out = new HashMap<>();
+    if (map == null) return out;
+    map.forEach((k, v) -> {
+      if (v != null && Math.abs(v) >= EPSILON) out.put(k, v);
+    });
+    return out;
+  }
+
+  static String recommendations(double totalSpend, double totalIncome, Map<String, Double> categorySummary, List<Insight.TopMerchant> topMerchants) {
+    List<String> list = new ArrayList<>();
+    if (totalIncome > 0) {
+      double savingsRate = ((totalIncome - totalSpend) / totalIncome) * 100.0;
+      if (savingsRate < 20) list.add(String.format(Locale.ENGLISH, "Your savings rate is %.1f%%. Consider reducing expenses to save at least 20%% of your income.", savingsRate));
+      else list.add(String.format(Locale.ENGLISH, "Great job! You're saving %.1f%% of your income.", savingsRate));
+    }
+
+    Optional<Map.Entry<String, Double>> topCat = categorySummary.entrySet().stream()
+      .sorted((a,b)->Double.compare(b.getValue(), a.getValue())).findFirst();
+    if (topCat.isPresent() && totalSpend > 0) {
+      String cat = topCat.get().getKey();
+      double perc = (topCat.get().getValue() / totalSpend) * 100.0;
+      if (perc > 30 && !"Income".equalsIgnoreCase(cat)) {
+        list.add(String.format(Locale.ENGLISH, "%s accounts for %.1f%% of your spending. Consider setting a budget to control this category.", cat, perc));
+      }
+    }
+
+    if (!topMerchants.isEmpty() && totalSpend > 0) {
+      Insight.TopMerchant tm = topMerchants.get(0);
+      double perc = (tm.getAmount() / totalSpend) * 100.0;
+      if (perc > 20) {
+        list.add(String.format(Locale.ENGLISH, "%s is your top spending destination at ₹%.2f (%.1f%% of total spend).", tm.getMerchant(), tm.getAmount(), perc));
+      }
+    }
+
+    double food = categorySummary.getOrDefault("Food & Dining", 0.0);
+    if (food > totalSpend * 0.25) {
+      list.add("Food & Dining expenses are high. Consider meal planning or cooking at home to reduce costs.");
+    }
+
+    double subs = categorySummary.getOrDefault("Subscriptions", 0.0);
+    if (subs > 0) list.add(String.format(Locale.ENGLISH, "You're spending ₹%.2f on subscriptions. Review and cancel unused services.", subs));
+
+    if (list.isEmpty()) list.add("Your spending patterns look balanced. Keep tracking to maintain financial awareness.");
+    return String.join(" ", list);
+  }
+
+  /**
+   * Key of a merchant in {@link Insight#getMerchant_totals()}. Merchant names
+   * are free text (manual entries, unparsed SMS), but the key is a Mongo field
+   * name and part of a dotted $inc path, so '%', '.' and '$' are escaped and
+   * null and empty names get keys of their own.
+   */
+  static String merchantKey(String merchant) {
+    if (merchant == null) return NULL_MERCHANT;
+    if (merchant.isEmpty()) return EMPTY_MERCHANT;
+    StringBuilder key = new StringBuilder(merchant.length());
+    for (int i = 0; i < merchant.length(); i++) {
+      char c = merchant.charAt(i);
+      switch (c) {
+        case '%' -> key.append("%25");
+        case '.' -> key.append("%2E");
+        case '$' -> key.append("%24");
+        default -> key.append(c);
+      }
+    }
+    return key.toString();
+  }
+
+  /** Inverse of {@link #merchantKey}; other '%' sequences are kept as they are. */
+  static String merchantName(String key) {
+    if (NULL_MERCHANT.equals(key)) return null;
+    if (EMPTY_MERCHANT.equals(key)) return "";
+    if (key.indexOf('%') < 0) return key;
+    StringBuilder name = new StringBuilder(key.length());
+    for (int i = 0; i < key.length(); i++) {
+      char c = key.charAt(i);
+      if (c == '%' && key.startsWith("%25", i)) {
+        name.append('%');
+        i += 2;
+      } else if (c == '%' && key.startsWith("%2E", i)) {
+        name.append('.');
+        i += 2;
+      } else if (c == '%' && key.startsWith("%24", i)) {
+        name.append('$');
+        i += 2;
+      } else {
+        name.append(c);
+      }
+    }
+    return name.toString();
+  }
+
+  /** Whether the key can be used as a Mongo field name in a dotted $inc path. */
+  static boolean isFieldSafe(String key) {
+    return key != null && !key.isEmpty() && key.indexOf('.') < 0 && key.charAt(0) != '$';
+  }
+}
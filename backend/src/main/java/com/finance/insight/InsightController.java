@@ -1,41 +1,145 @@
 package com.finance.insight;
 
+import com.finance.admission.AdmissionControl;
+import com.finance.admission.AdmissionControl.Permit;
+import com.finance.admission.AdmissionControl.Pool;
+import com.finance.admission.AdmissionRejectedException;
 import com.finance.security.AuthUtil;
+import com.finance.transaction.DataVersions;
 import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 
 @RestController
 @RequestMapping("/api/insights")
 public class InsightController {
+  private static final Logger log = LoggerFactory.getLogger(InsightController.class);
   private final InsightService service;
+  private final InsightUpdateScheduler updates;
+  private final InsightRangeService rangeService;
+  private final DataVersions versions;
+  private final AdmissionControl admission;
   private final AuthUtil authUtil;
 
-  public InsightController(InsightService service, AuthUtil authUtil) {
+  public InsightController(InsightService service, InsightUpdateScheduler updates, InsightRangeService rangeService,
+      DataVersions versions, AdmissionControl admission, AuthUtil authUtil) {
     this.service = service;
+    this.updates = updates;
+    this.rangeService = rangeService;
+    this.versions = versions;
+    this.admission = admission;
     this.authUtil = authUtil;
   }
 
   @GetMapping
+  @SuppressWarnings("try")
   public ResponseEntity<?> get(@RequestParam(name = "month", required = false) String month,
-      HttpServletRequest request) {
+      @RequestParam(name = "refresh", defaultValue = "false") boolean refresh,
+      @RequestParam(name = "await", defaultValue = "false") boolean await,
+      HttpServletRequest request, ServletWebRequest webRequest) {
     try {
-      System.out.println("InsightController: get called for month " + month);
+      log.debug("get called for month {}", month);
       String userId = authUtil.getUserId(request);
-      System.out.println("InsightController: userId = " + userId);
+      log.debug("userId = {}", userId);
 
       if (userId == null) {
         return ResponseEntity.status(401).body("Unauthorized - no user ID");
       }
 
-      Object result = service.generateAndUpsert(userId, month);
-      System.out.println("InsightController: Got result");
-      return ResponseEntity.ok(result);
+      YearMonth ym = InsightService.resolveMonth(month);
+      // The month is part of the tag because the default month moves on
+      if (!refresh && versions.checkNotModified(webRequest, userId, ym.toString())) {
+        return null;
+      }
+      try (Permit ignored = admission.admit("insights.get", Pool.INSIGHTS, userId, 1)) {
+        if (refresh) {
+          return ResponseEntity.ok(updates.rebuild(userId, ym));
+        }
+        // Read-your-writes: wait for this month's queued changes before reading
+        if (await && !updates.await(userId, ym)) {
+          return ResponseEntity.ok().header("X-Insights-Pending", "true").body(service.get(userId, month, false));
+        }
+        return ResponseEntity.ok(service.get(userId, month, false));
+      }
+
+    } catch (AdmissionRejectedException e) {
+      throw e;
+    } catch (Exception e) {
+      log.error("Failed to load insight for month {}", month, e);
+      return ResponseEntity.status(500).body("Error: " + e.getMessage());
+    }
+  }
+
+  @GetMapping("/range")
+  @SuppressWarnings("try")
+  public ResponseEntity<?> range(@RequestParam("from") String from,
+      @RequestParam("to") String to,
+      HttpServletRequest request, ServletWebRequest webRequest) {
+    String userId = authUtil.getUserId(request);
+    if (userId == null) {
+      return ResponseEntity.status(401).body("Unauthorized - no user ID");
+    }
+
+    YearMonth fromMonth;
+    YearMonth toMonth;
+    try {
+      fromMonth = YearMonth.parse(from);
+      toMonth = YearMonth.parse(to);
+    } catch (DateTimeParseException e) {
+      return ResponseEntity.badRequest().body("from and to must be YYYY-MM");
+    }
+    if (versions.checkNotModified(webRequest, userId, null)) {
+      return null;
+    }
 
+    try (Permit ignored = admission.admit("insights.range", Pool.INSIGHTS, userId, 1)) {
+      return ResponseEntity.ok(rangeService.range(userId, fromMonth, toMonth));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (AdmissionRejectedException e) {
+      throw e;
     } catch (Exception e) {
-      System.out.println("InsightController: ERROR - " + e.getClass().getName() + ": " + e.getMessage());
-      e.printStackTrace();
+      log.error("Failed to load insights from {} to {}", from, to, e);
       return ResponseEntity.status(500).body("Error: " + e.getMessage());
     }
   }
+
+  @GetMapping("/trend")
+  @SuppressWarnings("try")
+  public ResponseEntity<?> trend(@RequestParam("from") String from,
+      @RequestParam("to") String to,
+      @RequestParam(name = "granularity", defaultValue = "month") String granularity,
+      HttpServletRequest request, ServletWebRequest webRequest) {
+    String userId = authUtil.getUserId(request);
+    if (userId == null) {
+      return ResponseEntity.status(401).body("Unauthorized - no user ID");
+    }
+    if (!granularity.equals("month") && !granularity.equals("day")) {
+      return ResponseEntity.badRequest().body("granularity must be month or day");
+    }
+
+    YearMonth fromMonth;
+    YearMonth toMonth;
+    try {
+      fromMonth = YearMonth.parse(from);
+      toMonth = YearMonth.parse(to);
+    } catch (DateTimeParseException e) {
+      return ResponseEntity.badRequest().body("from and to must be YYYY-MM");
+    }
+    if (versions.checkNotModified(webRequest, userId, null)) {
+      return null;
+    }
+
+    try (Permit ignored = admission.admit("insights.trend", Pool.INSIGHTS, userId, 1)) {
+      return ResponseEntity.ok(service.trend(userId, fromMonth, toMonth, granularity.equals("day")));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    }
+  }
 }
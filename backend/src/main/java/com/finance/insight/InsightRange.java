@@ -0,0 +1,13 @@
+package com.finance.insight;
+
+import java.util.List;
+import java.util.Map;
+
+public record InsightRange(
+        String from,
+        String to,
+        List<Insight> months,
+        double total_spend,
+        double total_income,
+        Map<String, Double> category_summary) {
+}
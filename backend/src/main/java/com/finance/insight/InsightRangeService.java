@@ -0,0 +1,70 @@
+package com.finance.insight;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Serves several months in one call: every month is fetched (or rebuilt) as its
+ * own task on a bounded executor and the results are joined, so the request
+ * takes about as long as its slowest month.
+ */
+@Service
+public class InsightRangeService {
+  private final InsightService insightService;
+  private final Executor executor;
+  private final int maxMonths;
+
+  public InsightRangeService(InsightService insightService,
+      @Qualifier("insightRangeExecutor") Executor executor,
+      @Value("${app.insights.range.max-months:24}") int maxMonths) {
+    this.insightService = insightService;
+    this.executor = executor;
+    this.maxMonths = maxMonths;
+  }
+
+  public InsightRange range(String userId, YearMonth from, YearMonth to) {
+    if (from.isAfter(to)) {
+      throw new IllegalArgumentException("from must not be after to");
+    }
+    if (ChronoUnit.MONTHS.between(from, to) + 1 > maxMonths) {
+      throw new IllegalArgumentException("Range exceeds " + maxMonths + " months");
+    }
+
+    List<CompletableFuture<Insight>> futures = new ArrayList<>();
+    for (YearMonth ym = from; !ym.isAfter(to); ym = ym.plusMonths(1)) {
+      String month = ym.toString();
+      futures.add(CompletableFuture.supplyAsync(() -> insightService.get(userId, month, false), executor));
+    }
+
+    List<Insight> months = new ArrayList<>(futures.size());
+    try {
+      for (CompletableFuture<Insight> f : futures) {
+        months.add(f.join());
+      }
+    } catch (CompletionException e) {
+      futures.forEach(f -> f.cancel(false));
+      if (e.getCause() instanceof RuntimeException cause) throw cause;
+      throw e;
+    }
+
+    double spend = 0;
+    double income = 0;
+    Map<String, Double> categories = new HashMap<>();
+    for (Insight insight : months) {
+      spend += insight.getTotal_spend();
+      income += insight.getTotal_income();
+      if (insight.getCategory_summary() != null) {
+        insight.getCategory_summary().forEach((k, v) -> categories.merge(k, v, Double::sum));
+      }
+    }
+    return new InsightRange(from.toString(), to.toString(), months, spend, income, categories);
+  }
+}
@@ -1,105 +1,305 @@
 package com.finance.insight;
 
 import com.finance.transaction.Transaction;
-import com.finance.transaction.TransactionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
 
 @Service
 public class InsightService {
-  private final TransactionRepository txRepo;
+  private static final Logger log = LoggerFactory.getLogger(InsightService.class);
+  private static final int MAX_REBUILD_ATTEMPTS = 5;
+
   private final InsightRepository insightRepo;
+  private final MongoTemplate mongoTemplate;
+  private final RollupService rollupService;
+  private final MonthAggregator aggregator;
+  // The scheduler depends on this service, so it is looked up on first use
+  private final ObjectProvider<InsightUpdateScheduler> updates;
+  private final Cache<String, Insight> cache;
+  private final Timer generateTimer;
+  private final int trendMaxMonths;
 
-  public InsightService(TransactionRepository txRepo, InsightRepository insightRepo) {
-    this.txRepo = txRepo;
+  public InsightService(InsightRepository insightRepo, MongoTemplate mongoTemplate,
+      RollupService rollupService, MonthAggregator aggregator, MeterRegistry registry,
+      @Value("${app.insights.cache.max-size:10000}") long cacheMaxSize,
+      @Value("${app.insights.cache.ttl:PT5M}") Duration cacheTtl,
+      @Value("${app.insights.trend.max-months:36}") int trendMaxMonths,
+      ObjectProvider<InsightUpdateScheduler> updates) {
     this.insightRepo = insightRepo;
+    this.mongoTemplate = mongoTemplate;
+    this.rollupService = rollupService;
+    this.aggregator = aggregator;
+    this.trendMaxMonths = trendMaxMonths;
+    this.updates = updates;
+    this.generateTimer = Timer.builder("finance.insight.generate")
+      .description("Full rebuild of one month's insight")
+      .publishPercentileHistogram()
+      .register(registry);
+    // TTL bounds how long another node's writes can go unnoticed; local writes update the cache directly
+    this.cache = Caffeine.newBuilder()
+      .maximumSize(cacheMaxSize)
+      .expireAfterWrite(cacheTtl)
+      .build();
   }
 
-  public Insight generateAndUpsert(String userId, String monthStr) {
-    YearMonth ym = monthStr != null && !monthStr.isBlank()
-      ? YearMonth.parse(monthStr)
-      : YearMonth.now();
-    LocalDate start = ym.atDay(1);
-    LocalDate end = ym.atEndOfMonth();
+  /**
+   * Read path: serves the cached or stored insight and only rebuilds when the
+   * month has never been computed, was marked dirty, or a refresh is forced.
+   */
+  public Insight get(String userId, String monthStr, boolean refresh) {
+    YearMonth ym = resolveMonth(monthStr);
+    if (!refresh) {
+      Insight cached = cache.getIfPresent(cacheKey(userId, ym));
+      if (cached != null) return cached;
+
+      Optional<Insight> stored = insightRepo.findByUserIdAndMonth(userId, ym.toString());
+      if (stored.isPresent() && !stored.get().isDirty() && stored.get().getMerchant_totals() != null) {
+        cache.put(cacheKey(userId, ym), stored.get());
+        return stored.get();
+      }
+    }
+    // Through the scheduler, so changes queued for the month are not applied on top
+    return updates.getObject().rebuild(userId, ym);
+  }
+
+  /** Drops every cached month of the user, for writes that bypass the delta path. */
+  public void evict(String userId) {
+    String prefix = userId + "|";
+    cache.asMap().keySet().removeIf(k -> k.startsWith(prefix));
+  }
 
-    List<Transaction> txs = txRepo.findByUserIdAndTransactionDateBetweenOrderByTransactionDateDesc(userId, start, end);
+  /** Rebuilds the month right away; everything else goes through {@link InsightUpdateScheduler#rebuild}. */
+  Insight generateAndUpsert(String userId, String monthStr) {
+    return generateTimer.record(() -> rebuild(userId, monthStr));
+  }
 
-    double totalSpend = txs.stream().filter(t -> "debit".equalsIgnoreCase(t.getType()))
-      .mapToDouble(Transaction::getAmount).sum();
-    double totalIncome = txs.stream().filter(t -> "credit".equalsIgnoreCase(t.getType()))
-      .mapToDouble(Transaction::getAmount).sum();
+  /**
+   * Recomputes the month and writes it only if no delta or dirty mark has
+   * landed on the document since its revision was read; otherwise the month
+   * is aggregated again, as those writes may not be in the aggregate. The
+   * first write of a month is an upsert, and losing that race to a concurrent
+   * rebuild is a conflict like any other.
+   */
+  private Insight rebuild(String userId, String monthStr) {
+    YearMonth ym = resolveMonth(monthStr);
+    Insight computed = null;
+    for (int attempt = 0; attempt < MAX_REBUILD_ATTEMPTS; attempt++) {
+      long revision = insightRepo.findByUserIdAndMonth(userId, ym.toString()).map(Insight::getRevision).orElse(0L);
+      MonthAggregator.Result aggregate = aggregator.aggregate(userId, ym);
+      computed = aggregate.insight();
 
-    Map<String, Double> categorySummary = new HashMap<>();
-    for (Transaction t : txs) {
-      categorySummary.merge(t.getCategory(), t.getAmount(), Double::sum);
+      Criteria month = where("userId").is(userId).and("month").is(ym.toString());
+      // Documents that were never updated incrementally may not have a revision yet
+      Query unchanged = new Query(revision == 0
+        ? month.and("revision").in(0L, null)
+        : month.and("revision").is(revision));
+      Update update = new Update()
+        .set("total_spend", computed.getTotal_spend())
+        .set("total_income", computed.getTotal_income())
+        .set("category_summary", computed.getCategory_summary())
+        .set("merchant_totals", computed.getMerchant_totals())
+        .set("recommendations", computed.getRecommendations())
+        .set("top_merchants", computed.getTop_merchants())
+        .set("dirty", false)
+        .inc("revision", 1);
+      Insight saved;
+      try {
+        saved = mongoTemplate.findAndModify(unchanged, update,
+          FindAndModifyOptions.options().returnNew(true).upsert(true), Insight.class);
+      } catch (DuplicateKeyException e) {
+        // The revision moved on, so the upsert tried to insert a second document
+        continue;
+      }
+      rollupService.rebuildMonth(userId, ym, aggregate.days());
+      cache.put(cacheKey(userId, ym), saved);
+      return saved;
     }
+    // Still being written to; whoever changed it has left it dirty or up to date
+    log.warn("Gave up rebuilding insight for {} {} after {} conflicting writes", userId, ym, MAX_REBUILD_ATTEMPTS);
+    cache.invalidate(cacheKey(userId, ym));
+    return computed;
+  }
 
-    Map<String, Double> merchantSummary = new HashMap<>();
-    for (Transaction t : txs) {
-      if ("debit".equalsIgnoreCase(t.getType())) {
-        merchantSummary.merge(t.getMerchant(), t.getAmount(), Double::sum);
+  /**
+   * Per-period totals for {@code from..to} (inclusive) served from the rollups:
+   * one point per month, or per day with {@code daily}. Months that have never
+   * been rolled up but do hold transactions are rebuilt once first.
+   */
+  public List<TrendPoint> trend(String userId, YearMonth from, YearMonth to, boolean daily) {
+    if (from.isAfter(to)) {
+      throw new IllegalArgumentException("from must not be after to");
+    }
+    long months = ChronoUnit.MONTHS.between(from, to) + 1;
+    if (months > trendMaxMonths) {
+      throw new IllegalArgumentException("Range exceeds " + trendMaxMonths + " months");
+    }
+
+    Map<String, Rollup> byMonth = new HashMap<>();
+    for (Rollup r : rollupService.find(userId, Rollup.MONTH, from.toString(), to.toString())) {
+      byMonth.put(r.getPeriod(), r);
+    }
+    boolean rebuilt = false;
+    for (YearMonth ym = from; !ym.isAfter(to); ym = ym.plusMonths(1)) {
+      if (!byMonth.containsKey(ym.toString()) && hasTransactions(userId, ym)) {
+        updates.getObject().rebuild(userId, ym);
+        rebuilt = true;
+      }
+    }
+    if (rebuilt && !daily) {
+      byMonth.clear();
+      for (Rollup r : rollupService.find(userId, Rollup.MONTH, from.toString(), to.toString())) {
+        byMonth.put(r.getPeriod(), r);
       }
     }
 
-    List<Insight.TopMerchant> topMerchants = merchantSummary.entrySet().stream()
-      .map(e -> new Insight.TopMerchant(e.getKey(), e.getValue()))
-      .sorted((a, b) -> Double.compare(b.getAmount(), a.getAmount()))
-      .limit(5)
-      .collect(Collectors.toList());
+    List<TrendPoint> points = new ArrayList<>();
+    if (daily) {
+      Map<String, Rollup> byDay = new HashMap<>();
+      for (Rollup r : rollupService.find(userId, Rollup.DAY,
+          from.atDay(1).toString(), to.atEndOfMonth().toString())) {
+        byDay.put(r.getPeriod(), r);
+      }
+      for (LocalDate d = from.atDay(1); !d.isAfter(to.atEndOfMonth()); d = d.plusDays(1)) {
+        Rollup r = byDay.get(d.toString());
+        points.add(r != null ? TrendPoint.of(r) : TrendPoint.empty(d.toString()));
+      }
+    } else {
+      for (YearMonth ym = from; !ym.isAfter(to); ym = ym.plusMonths(1)) {
+        Rollup r = byMonth.get(ym.toString());
+        points.add(r != null ? TrendPoint.of(r) : TrendPoint.empty(ym.toString()));
+      }
+    }
+    return points;
+  }
 
-    String recs = recommendations(totalSpend, totalIncome, categorySummary, topMerchants);
+  private boolean hasTransactions(String userId, YearMonth ym) {
+    return mongoTemplate.exists(new Query(where("userId").is(userId)
+      .and("transactionDate").gte(ym.atDay(1)).lte(ym.atEndOfMonth())), Transaction.class);
+  }
 
-    Insight insight = insightRepo.findByUserIdAndMonth(userId, ym.toString()).orElse(new Insight());
-    insight.setUserId(userId);
-    insight.setMonth(ym.toString());
-    insight.setTotal_spend(totalSpend);
-    insight.setTotal_income(totalIncome);
-    insight.setCategory_summary(categorySummary);
-    insight.setRecommendations(recs);
-    insight.setTop_merchants(topMerchants);
+  /** Folds freshly saved transactions into their months' insights. */
+  public void applyTransactions(String userId, Collection<Transaction> txs) {
+    byMonth(txs).forEach((ym, group) -> applyDelta(userId, ym, group, 1));
+  }
 
-    return insightRepo.save(insight);
+  /** Removes deleted transactions from their months' insights. */
+  public void revertTransactions(String userId, Collection<Transaction> txs) {
+    byMonth(txs).forEach((ym, group) -> applyDelta(userId, ym, group, -1));
   }
 
-  private String recommendations(double totalSpend, double totalIncome, Map<String, Double> categorySummary, List<Insight.TopMerchant> topMerchants) {
-    List<String> list = new ArrayList<>();
-    if (totalIncome > 0) {
-      double savingsRate = ((totalIncome - totalSpend) / totalIncome) * 100.0;
-      if (savingsRate < 20) list.add(String.format(Locale.ENGLISH, "Your savings rate is %.1f%%. Consider reducing expenses to save at least 20%% of your income.", savingsRate));
-      else list.add(String.format(Locale.ENGLISH, "Great job! You're saving %.1f%% of your income.", savingsRate));
+  private static Map<YearMonth, List<Transaction>> byMonth(Collection<Transaction> txs) {
+    Map<YearMonth, List<Transaction>> out = new LinkedHashMap<>();
+    for (Transaction t : txs) {
+      out.computeIfAbsent(YearMonth.from(t.getTransactionDate()), k -> new ArrayList<>()).add(t);
     }
+    return out;
+  }
 
-    Optional<Map.Entry<String, Double>> topCat = categorySummary.entrySet().stream()
-      .sorted((a,b)->Double.compare(b.getValue(), a.getValue())).findFirst();
-    if (topCat.isPresent() && totalSpend > 0) {
-      String cat = topCat.get().getKey();
-      double perc = (topCat.get().getValue() / totalSpend) * 100.0;
-      if (perc > 30 && !"Income".equalsIgnoreCase(cat)) {
-        list.add(String.format(Locale.ENGLISH, "%s accounts for %.1f%% of your spending. Consider setting a budget to control this category.", cat, perc));
+  /**
+   * Applies the transactions as an atomic $inc on the month's insight and then
+   * re-derives top merchants and recommendations from the returned totals.
+   * When there is no incrementally maintained document yet, or a category cannot
+   * be used as a Mongo field name, the month is marked dirty for the next read instead.
+   */
+  private void applyDelta(String userId, YearMonth ym, List<Transaction> txs, int sign) {
+    double spend = 0;
+    double income = 0;
+    Map<String, Double> categories = new HashMap<>();
+    Map<String, Double> merchants = new HashMap<>();
+    for (Transaction t : txs) {
+      double amount = sign * t.getAmount();
+      if (!InsightCalculator.isFieldSafe(t.getCategory())) {
+        markDirty(userId, ym);
+        return;
+      }
+      categories.merge(t.getCategory(), amount, Double::sum);
+      if ("debit".equalsIgnoreCase(t.getType())) {
+        spend += amount;
+        merchants.merge(InsightCalculator.merchantKey(t.getMerchant()), amount, Double::sum);
+      } else if ("credit".equalsIgnoreCase(t.getType())) {
+        income += amount;
       }
     }
 
-    if (!topMerchants.isEmpty() && totalSpend > 0) {
-      Insight.TopMerchant tm = topMerchants.get(0);
-      double perc = (tm.getAmount() / totalSpend) * 100.0;
-      if (perc > 20) {
-        list.add(String.format(Locale.ENGLISH, "%s is your top spending destination at ₹%.2f (%.1f%% of total spend).", tm.getMerchant(), tm.getAmount(), perc));
-      }
+    Update update = new Update().inc("total_spend", spend).inc("total_income", income).inc("revision", 1);
+    categories.forEach((k, v) -> update.inc("category_summary." + k, v));
+    merchants.forEach((k, v) -> update.inc("merchant_totals." + k, v));
+
+    Query query = new Query(where("userId").is(userId).and("month").is(ym.toString())
+      .and("merchant_totals").exists(true));
+    Insight updated = mongoTemplate.findAndModify(query, update,
+      FindAndModifyOptions.options().returnNew(true), Insight.class);
+    if (updated == null) {
+      markDirty(userId, ym);
+      return;
     }
 
-    double food = categorySummary.getOrDefault("Food & Dining", 0.0);
-    if (food > totalSpend * 0.25) {
-      list.add("Food & Dining expenses are high. Consider meal planning or cooking at home to reduce costs.");
+    InsightCalculator.finish(updated);
+    // Only the writer holding the latest revision publishes the derived fields
+    long published = mongoTemplate.updateFirst(
+      new Query(where("_id").is(updated.getId()).and("revision").is(updated.getRevision())),
+      new Update()
+        .set("category_summary", updated.getCategory_summary())
+        .set("merchant_totals", updated.getMerchant_totals())
+        .set("top_merchants", updated.getTop_merchants())
+        .set("recommendations", updated.getRecommendations()),
+      Insight.class).getMatchedCount();
+    if (published > 0 && !updated.isDirty()) {
+      cache.put(cacheKey(userId, ym), updated);
+    } else {
+      cache.invalidate(cacheKey(userId, ym));
     }
+  }
+
+  void markDirty(String userId, YearMonth ym) {
+    mongoTemplate.upsert(new Query(where("userId").is(userId).and("month").is(ym.toString())),
+      new Update().set("dirty", true).inc("revision", 1), Insight.class);
+    cache.invalidate(cacheKey(userId, ym));
+  }
 
-    double subs = categorySummary.getOrDefault("Subscriptions", 0.0);
-    if (subs > 0) list.add(String.format(Locale.ENGLISH, "You're spending ₹%.2f on subscriptions. Review and cancel unused services.", subs));
+  /** {@link #markDirty(String, YearMonth)} for several months with one unordered bulk. */
+  void markDirty(String userId, Collection<YearMonth> months) {
+    if (months.isEmpty()) return;
+    BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Insight.class);
+    for (YearMonth ym : months) {
+      bulk.upsert(new Query(where("userId").is(userId).and("month").is(ym.toString())),
+        new Update().set("dirty", true).inc("revision", 1));
+    }
+    bulk.execute();
+    for (YearMonth ym : months) {
+      cache.invalidate(cacheKey(userId, ym));
+    }
+  }
+
+  static YearMonth resolveMonth(String monthStr) {
+    return monthStr != null && !monthStr.isBlank()
+      ? YearMonth.parse(monthStr)
+      : YearMonth.now();
+  }
 
-    if (list.isEmpty()) list.add("Your spending patterns look balanced. Keep tracking to maintain financial awareness.");
-    return String.join(" ", list);
+  private static String cacheKey(String userId, YearMonth ym) {
+    return userId + "|" + ym;
   }
 }
@@ -0,0 +1,364 @@
+package com.finance.insight;
+
+import com.finance.transaction.DataVersions;
+import com.finance.transaction.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Moves insight and rollup maintenance off the request thread. Writes are
+ * collected per (user, month) for a short window and then applied by a small
+ * worker pool as one delta, so a burst of messages for the same month costs a
+ * single update. The number of outstanding months is bounded; past the bound
+ * writes are applied inline on the caller's thread. Every applied batch bumps
+ * the user's data version again, so an insight read while the batch was still
+ * queued is not kept alive by its ETag. A full rebuild of a month never
+ * overlaps with deltas being applied to it, as the rebuild may or may not have
+ * read their transactions already.
+ */
+@Component
+public class InsightUpdateScheduler {
+  private static final Logger log = LoggerFactory.getLogger(InsightUpdateScheduler.class);
+  private static final int MAX_REBUILDS = 3;
+
+  private record Key(String userId, YearMonth month) {
+  }
+
+  // Changes gathered for one key; only mutated inside pending.compute
+  private static final class Batch {
+    final List<Transaction> added = new ArrayList<>();
+    final List<Transaction> removed = new ArrayList<>();
+    final CompletableFuture<Void> done = new CompletableFuture<>();
+  }
+
+  // Rebuilds of one key in progress; only mutated inside pending.compute
+  private static final class Rebuild {
+    int active;
+    // Changes were submitted meanwhile, which the rebuilds may have missed
+    boolean stale;
+  }
+
+  private final InsightService insightService;
+  private final RollupService rollupService;
+  private final DataVersions versions;
+  private final boolean async;
+  private final Duration window;
+  private final int maxPending;
+  private final Duration awaitTimeout;
+  private final ScheduledThreadPoolExecutor executor;
+
+  private final ConcurrentHashMap<Key, Batch> pending = new ConcurrentHashMap<>();
+  // Completes once every batch already handed to a worker for the key has been applied
+  private final ConcurrentHashMap<Key, CompletableFuture<Void>> running = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Key, Rebuild> rebuilding = new ConcurrentHashMap<>();
+  private final AtomicInteger outstanding = new AtomicInteger();
+
+  private final Counter asyncCounter;
+  private final Counter inlineCounter;
+  private final Counter coalescedCounter;
+  private final Counter failedCounter;
+  private final Timer applyTimer;
+
+  public InsightUpdateScheduler(InsightService insightService, RollupService rollupService, DataVersions versions,
+      MeterRegistry registry,
+      @Value("${app.insights.updates.async:true}") boolean async,
+      @Value("${app.insights.updates.window:50ms}") Duration window,
+      @Value("${app.insights.updates.workers:2}") int workers,
+      @Value("${app.insights.updates.max-pending:10000}") int maxPending,
+      @Value("${app.insights.updates.await-timeout:2s}") Duration awaitTimeout) {
+    this.insightService = insightService;
+    this.rollupService = rollupService;
+    this.versions = versions;
+    this.async = async;
+    this.window = window;
+    this.maxPending = maxPending;
+    this.awaitTimeout = awaitTimeout;
+
+    AtomicInteger threadId = new AtomicInteger();
+    this.executor = new ScheduledThreadPoolExecutor(workers, r -> {
+      Thread t = new Thread(r, "insight-update-" + threadId.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    this.executor.setRemoveOnCancelPolicy(true);
+
+    Gauge.builder("finance.insight.updates.pending", outstanding, AtomicInteger::get)
+      .description("Months with insight changes waiting to be applied")
+      .register(registry);
+    this.asyncCounter = Counter.builder("finance.insight.updates").tag("path", "async").register(registry);
+    this.inlineCounter = Counter.builder("finance.insight.updates").tag("path", "inline").register(registry);
+    this.coalescedCounter = Counter.builder("finance.insight.updates.coalesced")
+      .description("Writes merged into a month that already had changes pending")
+      .register(registry);
+    this.failedCounter = Counter.builder("finance.insight.updates.failed").register(registry);
+    this.applyTimer = Timer.builder("finance.insight.updates.apply")
+      .description("Applying one month's batched changes")
+      .publishPercentileHistogram()
+      .register(registry);
+  }
+
+  /** Queues freshly saved transactions for their months' insights and rollups. */
+  public void added(String userId, Collection<Transaction> txs) {
+    submit(userId, txs, true);
+  }
+
+  /** Queues deleted transactions for removal from their months' insights and rollups. */
+  public void removed(String userId, Collection<Transaction> txs) {
+    submit(userId, txs, false);
+  }
+
+  /**
+   * Read-your-writes: blocks until the changes queued so far for the month have
+   * been applied, or the await timeout passes. Returns false on timeout.
+   */
+  public boolean await(String userId, YearMonth month) {
+    Key key = new Key(userId, month);
+    // Pending first: a flush registers the batch as running before un-publishing it
+    Batch batch = pending.get(key);
+    CompletableFuture<Void> inFlight = running.get(key);
+    List<CompletableFuture<Void>> waits = new ArrayList<>(2);
+    if (batch != null) waits.add(batch.done);
+    if (inFlight != null) waits.add(inFlight);
+    if (waits.isEmpty()) return true;
+    try {
+      CompletableFuture.allOf(waits.toArray(new CompletableFuture<?>[0]))
+        .get(awaitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+      return true;
+    } catch (TimeoutException e) {
+      return false;
+    } catch (ExecutionException e) {
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Full rebuild of the month. Queued changes that have not started yet are
+   * already reflected in the stored transactions the rebuild reads, so they are
+   * dropped instead of being applied on top; changes that are being applied
+   * are waited for first. Changes submitted while the rebuild runs are not
+   * applied as deltas either: the month is rebuilt once more afterwards, or
+   * left for the next read to rebuild if writes keep coming.
+   */
+  public Insight rebuild(String userId, YearMonth month) {
+    Key key = new Key(userId, month);
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    Batch[] dropped = {null};
+    List<CompletableFuture<Void>> applying = new ArrayList<>(1);
+    pending.compute(key, (k, batch) -> {
+      rebuilding.computeIfAbsent(k, r -> new Rebuild()).active++;
+      CompletableFuture<Void> inFlight = running.get(k);
+      if (inFlight != null) applying.add(inFlight);
+      track(k, done);
+      dropped[0] = batch;
+      return null;
+    });
+    try {
+      if (dropped[0] != null) {
+        outstanding.decrementAndGet();
+        dropped[0].done.complete(null);
+      }
+      applying.forEach(CompletableFuture::join);
+
+      Insight insight = null;
+      for (int attempt = 0; attempt < MAX_REBUILDS; attempt++) {
+        insight = insightService.generateAndUpsert(userId, month.toString());
+        if (!takeStale(key)) return insight;
+      }
+      recover(key);
+      return insight;
+    } finally {
+      boolean[] stale = {false};
+      pending.compute(key, (k, batch) -> {
+        Rebuild r = rebuilding.get(k);
+        if (--r.active == 0) {
+          rebuilding.remove(k);
+          stale[0] = r.stale;
+        }
+        return batch;
+      });
+      if (stale[0]) recover(key);
+      versions.bump(userId);
+      done.complete(null);
+    }
+  }
+
+  /**
+   * Leaves the months for their next read to rebuild instead of rebuilding them
+   * here, for writes that may touch years of months at once. Queued changes are
+   * dropped as in {@link #rebuild}, a rebuild in progress runs once more, and
+   * months with changes being applied are marked again once those have landed.
+   */
+  public void invalidate(String userId, Collection<YearMonth> months) {
+    Map<YearMonth, CompletableFuture<Void>> applying = new HashMap<>();
+    for (YearMonth month : months) {
+      Batch[] dropped = {null};
+      pending.compute(new Key(userId, month), (k, batch) -> {
+        Rebuild r = rebuilding.get(k);
+        if (r != null) r.stale = true;
+        CompletableFuture<Void> inFlight = running.get(k);
+        if (inFlight != null) applying.put(month, inFlight);
+        dropped[0] = batch;
+        return null;
+      });
+      if (dropped[0] != null) {
+        outstanding.decrementAndGet();
+        dropped[0].done.complete(null);
+      }
+    }
+    insightService.markDirty(userId, months);
+    rollupService.forgetMonths(userId, months);
+    applying.forEach((month, inFlight) -> inFlight.whenComplete((r, e) -> recover(new Key(userId, month))));
+  }
+
+  private boolean takeStale(Key key) {
+    boolean[] stale = {false};
+    pending.compute(key, (k, batch) -> {
+      Rebuild r = rebuilding.get(k);
+      stale[0] = r.stale;
+      r.stale = false;
+      return batch;
+    });
+    return stale[0];
+  }
+
+  private void submit(String userId, Collection<Transaction> txs, boolean add) {
+    Map<YearMonth, List<Transaction>> byMonth = new LinkedHashMap<>();
+    for (Transaction t : txs) {
+      byMonth.computeIfAbsent(YearMonth.from(t.getTransactionDate()), k -> new ArrayList<>()).add(t);
+    }
+    byMonth.forEach((month, group) -> {
+      Key key = new Key(userId, month);
+      boolean[] queued = {false};
+      boolean[] created = {false};
+      CompletableFuture<Void> inline = new CompletableFuture<>();
+      pending.compute(key, (k, batch) -> {
+        Rebuild r = rebuilding.get(k);
+        if (r != null) {
+          r.stale = true;
+          queued[0] = true;
+          return batch;
+        }
+        if (async && !executor.isShutdown()) {
+          if (batch == null && outstanding.incrementAndGet() > maxPending) {
+            outstanding.decrementAndGet();
+          } else {
+            if (batch == null) {
+              batch = new Batch();
+              created[0] = true;
+            } else {
+              coalescedCounter.increment();
+            }
+            (add ? batch.added : batch.removed).addAll(group);
+            queued[0] = true;
+            return batch;
+          }
+        }
+        // Inline applies are waited for by rebuilds like flushed batches
+        track(k, inline);
+        return batch;
+      });
+      if (created[0]) {
+        try {
+          executor.schedule(() -> flush(key), window.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+          // Shut down in the meantime
+          flush(key);
+        }
+      }
+      if (queued[0]) {
+        asyncCounter.increment();
+      } else {
+        inlineCounter.increment();
+        try {
+          apply(key, add ? group : List.of(), add ? List.of() : group);
+        } finally {
+          inline.complete(null);
+        }
+      }
+    });
+  }
+
+  private void flush(Key key) {
+    Batch batch = pending.get(key);
+    if (batch == null) return;
+    track(key, batch.done);
+    if (!pending.remove(key, batch)) {
+      // Dropped by a concurrent rebuild
+      return;
+    }
+    try {
+      apply(key, batch.added, batch.removed);
+    } finally {
+      outstanding.decrementAndGet();
+      batch.done.complete(null);
+    }
+  }
+
+  private void track(Key key, CompletableFuture<Void> done) {
+    CompletableFuture<Void> tail = running.compute(key,
+      (k, previous) -> previous == null ? done : CompletableFuture.allOf(previous, done));
+    tail.whenComplete((r, e) -> running.remove(key, tail));
+  }
+
+  private void apply(Key key, List<Transaction> added, List<Transaction> removed) {
+    applyTimer.record(() -> {
+      try {
+        if (!added.isEmpty()) {
+          insightService.applyTransactions(key.userId(), added);
+          rollupService.apply(key.userId(), added, 1);
+        }
+        if (!removed.isEmpty()) {
+          insightService.revertTransactions(key.userId(), removed);
+          rollupService.apply(key.userId(), removed, -1);
+        }
+      } catch (RuntimeException e) {
+        failedCounter.increment();
+        log.error("Could not apply insight changes for {} {}", key.userId(), key.month(), e);
+        recover(key);
+      }
+      versions.bump(key.userId());
+    });
+  }
+
+  // The deltas are lost: make the next read rebuild the month from its transactions
+  private void recover(Key key) {
+    try {
+      insightService.markDirty(key.userId(), key.month());
+      rollupService.forgetMonth(key.userId(), key.month());
+    } catch (RuntimeException e) {
+      log.error("Could not mark {} {} for rebuild", key.userId(), key.month(), e);
+    }
+  }
+
+  /** Applies everything still queued before the application context goes away. */
+  @PreDestroy
+  public void shutdown() {
+    for (Key key : new ArrayList<>(pending.keySet())) {
+      executor.execute(() -> flush(key));
+    }
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+        log.warn("Insight updates still pending at shutdown: {}", outstanding.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
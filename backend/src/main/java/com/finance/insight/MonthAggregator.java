@@ -0,0 +1,147 @@
+package com.finance.insight;
+
+import com.finance.transaction.Transaction;
+import com.finance.transaction.TransactionCodec;
+import com.finance.transaction.TransactionRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Computes a month's insight totals and per-day rollups. The result is
+ * persisted as the month's clean state, so it is always read from MongoDB, never
+ * from a node's transaction cache. MongoDB does the grouping by default ($match +
+ * $facet of $group stages) so only the aggregates cross the wire; the Java path
+ * streams the month's transactions and groups them in memory, and also serves
+ * as the fallback when the pipeline fails.
+ */
+@Component
+class MonthAggregator {
+  private static final Logger log = LoggerFactory.getLogger(MonthAggregator.class);
+
+  record Result(Insight insight, List<Rollup> days) {
+  }
+
+  // One (day, type, category) group
+  private record Cell(LocalDate day, String type, String category, double amount, long count) {
+  }
+
+  private final MongoTemplate mongoTemplate;
+  private final TransactionRepository txRepo;
+  private final TransactionCodec codec;
+  private final boolean pipeline;
+
+  MonthAggregator(MongoTemplate mongoTemplate, TransactionRepository txRepo, TransactionCodec codec,
+      @Value("${app.insights.aggregation:pipeline}") String mode) {
+    this.mongoTemplate = mongoTemplate;
+    this.txRepo = txRepo;
+    this.codec = codec;
+    this.pipeline = !"java".equalsIgnoreCase(mode.trim());
+  }
+
+  Result aggregate(String userId, YearMonth ym) {
+    if (pipeline) {
+      try {
+        return aggregateInMongo(userId, ym);
+      } catch (RuntimeException e) {
+        log.warn("Insight pipeline failed for {} {}, grouping in Java: {}", userId, ym, e.getMessage());
+      }
+    }
+    return aggregateInJava(userId, ym);
+  }
+
+  private Result aggregateInMongo(String userId, YearMonth ym) {
+    TypedAggregation<Transaction> aggregation = newAggregation(Transaction.class,
+      match(where("userId").is(userId).and("transactionDate").gte(ym.atDay(1)).lte(ym.atEndOfMonth())),
+      facet(group("transactionDate", "type", "category").sum("amount").as("amount").count().as("count"))
+        .as("cells")
+        .and(group("merchant", "type").sum("amount").as("amount"))
+        .as("merchants"));
+    Document out = mongoTemplate.aggregate(aggregation, Document.class).getUniqueMappedResult();
+
+    // Groups come back with stored values, which are codes for compact documents
+    List<Cell> cells = new ArrayList<>();
+    Map<String, Double> merchantTotals = new HashMap<>();
+    if (out != null) {
+      for (Document d : out.getList("cells", Document.class, List.of())) {
+        Document key = d.get("_id", Document.class);
+        Date day = key.getDate("transactionDate");
+        if (day == null) continue;
+        cells.add(new Cell(LocalDate.ofInstant(day.toInstant(), ZoneId.systemDefault()),
+          codec.type(key.get("type")), codec.category(key.get("category")),
+          ((Number) d.get("amount")).doubleValue(), ((Number) d.get("count")).longValue()));
+      }
+      for (Document d : out.getList("merchants", Document.class, List.of())) {
+        Document key = d.get("_id", Document.class);
+        if ("debit".equalsIgnoreCase(codec.type(key.get("type")))) {
+          merchantTotals.merge(codec.merchant(userId, key.get("merchant")), ((Number) d.get("amount")).doubleValue(),
+            Double::sum);
+        }
+      }
+    }
+    return fromCells(userId, ym, cells, merchantTotals);
+  }
+
+  private Result aggregateInJava(String userId, YearMonth ym) {
+    Map<List<Object>, double[]> groups = new HashMap<>();
+    Map<String, Double> merchantTotals = new HashMap<>();
+    try (Stream<Transaction> txs = txRepo.streamByUserId(userId, ym.atDay(1), ym.atEndOfMonth())) {
+      txs.forEach(t -> {
+        if (t.getTransactionDate() == null) return;
+        double[] g = groups.computeIfAbsent(
+          Arrays.asList(t.getTransactionDate(), t.getType(), t.getCategory()), k -> new double[2]);
+        g[0] += t.getAmount();
+        g[1]++;
+        if ("debit".equalsIgnoreCase(t.getType())) {
+          merchantTotals.merge(t.getMerchant(), t.getAmount(), Double::sum);
+        }
+      });
+    }
+    List<Cell> cells = new ArrayList<>(groups.size());
+    groups.forEach((k, g) -> cells.add(
+      new Cell((LocalDate) k.get(0), (String) k.get(1), (String) k.get(2), g[0], (long) g[1])));
+    return fromCells(userId, ym, cells, merchantTotals);
+  }
+
+  private static Result fromCells(String userId, YearMonth ym, List<Cell> cells, Map<String, Double> merchantTotals) {
+    double spend = 0;
+    double income = 0;
+    Map<String, Double> categories = new HashMap<>();
+    Map<LocalDate, Rollup> days = new TreeMap<>();
+    for (Cell c : cells) {
+      Rollup day = days.computeIfAbsent(c.day(), d -> Rollup.builder()
+        .userId(userId)
+        .granularity(Rollup.DAY)
+        .period(d.toString())
+        .categories(new HashMap<>())
+        .build());
+      if ("debit".equalsIgnoreCase(c.type())) {
+        spend += c.amount();
+        day.setDebit(day.getDebit() + c.amount());
+      } else if ("credit".equalsIgnoreCase(c.type())) {
+        income += c.amount();
+        day.setCredit(day.getCredit() + c.amount());
+      }
+      day.setCount(day.getCount() + c.count());
+      categories.merge(c.category(), c.amount(), Double::sum);
+      if (InsightCalculator.isFieldSafe(c.category())) {
+        day.getCategories().merge(c.category(), c.amount(), Double::sum);
+      }
+    }
+    Insight insight = InsightCalculator.fromTotals(userId, ym, spend, income, categories, merchantTotals);
+    return new Result(insight, new ArrayList<>(days.values()));
+  }
+}
@@ -0,0 +1,32 @@
+package com.finance.insight;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "rollups")
+@CompoundIndex(name = "user_granularity_period_unique", def = "{ 'userId': 1, 'granularity': 1, 'period': 1 }", unique = true)
+public class Rollup {
+  public static final String DAY = "day";
+  public static final String MONTH = "month";
+
+  @Id
+  private String id;
+  private String userId;
+  private String granularity; // day | month
+  private String period; // YYYY-MM-DD or YYYY-MM
+  private double debit;
+  private double credit;
+  private long count;
+  private Map<String, Double> categories;
+}
@@ -0,0 +1,7 @@
+package com.finance.insight;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface RollupRepository extends MongoRepository<Rollup, String> {
+  void deleteByUserId(String userId);
+}
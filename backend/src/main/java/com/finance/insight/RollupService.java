@@ -0,0 +1,134 @@
+package com.finance.insight;
+
+import com.finance.transaction.Transaction;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Maintains the per-user day and month rollups: debit/credit totals, counts and
+ * category amounts, kept current with an $inc per touched bucket on every write
+ * so range queries never have to read raw transactions.
+ */
+@Service
+public class RollupService {
+  private final MongoTemplate mongoTemplate;
+
+  public RollupService(MongoTemplate mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  /**
+   * Adds ({@code sign} 1) or removes ({@code sign} -1) the transactions with one
+   * unordered bulk of upserts. Categories that cannot be used as a field name
+   * still count towards the totals but are left out of the breakdown.
+   */
+  public void apply(String userId, Collection<Transaction> txs, int sign) {
+    Map<String, Bucket> days = new LinkedHashMap<>();
+    Map<String, Bucket> months = new LinkedHashMap<>();
+    for (Transaction t : txs) {
+      LocalDate date = t.getTransactionDate();
+      days.computeIfAbsent(date.toString(), k -> new Bucket()).add(t, sign);
+      months.computeIfAbsent(YearMonth.from(date).toString(), k -> new Bucket()).add(t, sign);
+    }
+    if (days.isEmpty()) return;
+
+    BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Rollup.class);
+    days.forEach((period, b) -> bulk.upsert(bucketQuery(userId, Rollup.DAY, period), b.toUpdate()));
+    months.forEach((period, b) -> bulk.upsert(bucketQuery(userId, Rollup.MONTH, period), b.toUpdate()));
+    bulk.execute();
+  }
+
+  /**
+   * Replaces the month's rollups with the given complete set of day rollups and
+   * their sum as the month document. The month document is written even for an
+   * empty month, so its presence means the month has been rolled up.
+   */
+  public void rebuildMonth(String userId, YearMonth ym, List<Rollup> days) {
+    mongoTemplate.remove(new Query(where("userId").is(userId)
+      .and("granularity").in(Rollup.DAY, Rollup.MONTH)
+      .and("period").regex("^" + ym)), Rollup.class);
+
+    Rollup month = Rollup.builder()
+      .userId(userId)
+      .granularity(Rollup.MONTH)
+      .period(ym.toString())
+      .categories(new HashMap<>())
+      .build();
+    for (Rollup day : days) {
+      month.setDebit(month.getDebit() + day.getDebit());
+      month.setCredit(month.getCredit() + day.getCredit());
+      month.setCount(month.getCount() + day.getCount());
+      day.getCategories().forEach((k, v) -> month.getCategories().merge(k, v, Double::sum));
+    }
+    List<Rollup> docs = new ArrayList<>(days);
+    docs.add(month);
+    mongoTemplate.insert(docs, Rollup.class);
+  }
+
+  /**
+   * Drops the month document after increments may have been lost, so the trend
+   * endpoint rebuilds the month from its transactions on the next request.
+   */
+  void forgetMonth(String userId, YearMonth ym) {
+    mongoTemplate.remove(bucketQuery(userId, Rollup.MONTH, ym.toString()), Rollup.class);
+  }
+
+  /** {@link #forgetMonth} for several months with one remove. */
+  void forgetMonths(String userId, Collection<YearMonth> months) {
+    if (months.isEmpty()) return;
+    mongoTemplate.remove(new Query(where("userId").is(userId).and("granularity").is(Rollup.MONTH)
+      .and("period").in(months.stream().map(YearMonth::toString).toList())), Rollup.class);
+  }
+
+  /** Rollups of one granularity with {@code from <= period <= to}, oldest first. */
+  public List<Rollup> find(String userId, String granularity, String from, String to) {
+    return mongoTemplate.find(findQuery(userId, granularity, from, to), Rollup.class);
+  }
+
+  /** The query behind {@link #find}, shared with the startup index check. */
+  public static Query findQuery(String userId, String granularity, String from, String to) {
+    return new Query(where("userId").is(userId).and("granularity").is(granularity)
+      .and("period").gte(from).lte(to))
+      .with(Sort.by("period"));
+  }
+
+  private static Query bucketQuery(String userId, String granularity, String period) {
+    return new Query(where("userId").is(userId).and("granularity").is(granularity).and("period").is(period));
+  }
+
+  private static final class Bucket {
+    double debit;
+    double credit;
+    long count;
+    final Map<String, Double> categories = new HashMap<>();
+
+    void add(Transaction t, int sign) {
+      double amount = sign * t.getAmount();
+      if ("debit".equalsIgnoreCase(t.getType())) {
+        debit += amount;
+      } else if ("credit".equalsIgnoreCase(t.getType())) {
+        credit += amount;
+      }
+      count += sign;
+      if (InsightCalculator.isFieldSafe(t.getCategory())) {
+        categories.merge(t.getCategory(), amount, Double::sum);
+      }
+    }
+
+    Update toUpdate() {
+      Update update = new Update().inc("debit", debit).inc("credit", credit).inc("count", count);
+      categories.forEach((k, v) -> update.inc("categories." + k, v));
+      return update;
+    }
+  }
+}
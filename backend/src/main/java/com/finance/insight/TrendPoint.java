@@ -0,0 +1,20 @@
+package com.finance.insight;
+
+import java.util.Map;
+
+public record TrendPoint(
+        String period,
+        double total_spend,
+        double total_income,
+        long count,
+        Map<String, Double> category_summary) {
+
+    static TrendPoint of(Rollup r) {
+        return new TrendPoint(r.getPeriod(), r.getDebit(), r.getCredit(), r.getCount(),
+                InsightCalculator.prune(r.getCategories()));
+    }
+
+    static TrendPoint empty(String period) {
+        return new TrendPoint(period, 0, 0, 0, Map.of());
+    }
+}
@@ -1,12 +1,16 @@
 package com.finance.security;
 
-import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
 @Component
 public class AuthUtil {
+  private static final Logger log = LoggerFactory.getLogger(AuthUtil.class);
   private final JwtService jwtService;
 
   public AuthUtil(JwtService jwtService) {
@@ -14,22 +18,26 @@ public class AuthUtil {
   }
 
   public String getUserId(HttpServletRequest request) {
-    // First try to get from JWT token directly
+    // JwtAuthFilter has already verified the token and stored its principal
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+      return user.userId();
+    }
+
+    // Otherwise fall back to the token itself
     String auth = request.getHeader(HttpHeaders.AUTHORIZATION);
     if (auth == null || !auth.startsWith("Bearer ")) {
-      System.out.println("AuthUtil: No Bearer token found");
+      log.debug("No Bearer token found");
       return null;
     }
 
     try {
       String token = auth.substring(7);
-      Claims claims = jwtService.parse(token);
-      Object uid = claims.get("uid");
-      System.out.println("AuthUtil: Got userId from token: " + uid);
-      return uid != null ? uid.toString() : null;
+      String uid = jwtService.authenticate(token).userId();
+      log.debug("Got userId from token: {}", uid);
+      return uid;
     } catch (Exception e) {
-      System.out.println("AuthUtil: Error parsing token: " + e.getMessage());
-      e.printStackTrace();
+      log.debug("Error parsing token: {}", e.getMessage());
       return null;
     }
   }
@@ -0,0 +1,24 @@
+package com.finance.security;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+/**
+ * Principal rebuilt from a verified token's claims, so authenticating a
+ * request needs no user lookup.
+ */
+public record AuthenticatedUser(String userId, String email, String username) {
+  static final List<GrantedAuthority> AUTHORITIES = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+
+  static AuthenticatedUser from(Claims claims) {
+    Object uid = claims.get("uid");
+    Object username = claims.get("username");
+    return new AuthenticatedUser(
+      uid != null ? uid.toString() : null,
+      claims.getSubject(),
+      username != null ? username.toString() : null);
+  }
+}
@@ -1,6 +1,10 @@
 package com.finance.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -13,14 +17,22 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtService {
   private final Key key;
   private final long expirationMs;
+  private final JwtParser parser;
+  // Verified tokens, each kept only until the token itself expires
+  private final Cache<String, VerifiedToken> verified;
+
+  private record VerifiedToken(AuthenticatedUser user, long expiresAtMs) {
+  }
 
   public JwtService(@Value("${app.jwt.secret}") String base64Secret,
-                    @Value("${app.jwt.expirationMs}") long expirationMs) {
+                    @Value("${app.jwt.expirationMs}") long expirationMs,
+                    @Value("${app.jwt.cache.max-size:10000}") long cacheMaxSize) {
     byte[] keyBytes = tryDecodeSecret(base64Secret);
     if (keyBytes == null) {
       // treat as raw string bytes
@@ -32,6 +44,26 @@ public class JwtService {
     }
     this.key = Keys.hmacShaKeyFor(keyBytes);
     this.expirationMs = expirationMs;
+    this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+    this.verified = Caffeine.newBuilder()
+      .maximumSize(cacheMaxSize)
+      .expireAfter(new Expiry<String, VerifiedToken>() {
+        @Override
+        public long expireAfterCreate(String token, VerifiedToken v, long currentTime) {
+          return TimeUnit.MILLISECONDS.toNanos(Math.max(0, v.expiresAtMs() - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, VerifiedToken v, long currentTime, long currentDuration) {
+          return expireAfterCreate(token, v, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, VerifiedToken v, long currentTime, long currentDuration) {
+          return currentDuration;
+        }
+      })
+      .build();
   }
 
   public String generateToken(String subject, Map<String, Object> claims) {
@@ -46,8 +78,26 @@ public class JwtService {
   }
 
   public Claims parse(String token) {
-    return Jwts.parserBuilder().setSigningKey(key).build()
-      .parseClaimsJws(token).getBody();
+    return parser.parseClaimsJws(token).getBody();
+  }
+
+  /**
+   * Verifies the token and returns the principal it carries. Signature checks
+   * only happen on the first sight of a token; repeats are served from the cache
+   * until the token's expiry. Throws the parser's exception for invalid tokens.
+   */
+  public AuthenticatedUser authenticate(String token) {
+    VerifiedToken hit = verified.getIfPresent(token);
+    if (hit != null && hit.expiresAtMs() > System.currentTimeMillis()) {
+      return hit.user();
+    }
+    Claims claims = parse(token);
+    AuthenticatedUser user = AuthenticatedUser.from(claims);
+    long expiresAt = claims.getExpiration() != null
+      ? claims.getExpiration().getTime()
+      : System.currentTimeMillis() + expirationMs;
+    verified.put(token, new VerifiedToken(user, expiresAt));
+    return user;
   }
 
   private static byte[] tryDecodeSecret(String s) {
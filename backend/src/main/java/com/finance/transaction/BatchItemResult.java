@@ -0,0 +1,22 @@
+package com.finance.transaction;
+
+public record BatchItemResult(
+        int index,
+        boolean success,
+        Transaction transaction,
+        String error,
+        boolean duplicate) {
+
+    static BatchItemResult ok(int index, Transaction transaction) {
+        return new BatchItemResult(index, true, transaction, null, false);
+    }
+
+    // Already stored: the existing transaction, nothing was written
+    static BatchItemResult duplicate(int index, Transaction transaction) {
+        return new BatchItemResult(index, true, transaction, null, true);
+    }
+
+    static BatchItemResult failed(int index, String error) {
+        return new BatchItemResult(index, false, null, error != null ? error : "Could not parse message", false);
+    }
+}
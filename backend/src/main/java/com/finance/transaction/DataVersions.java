@@ -0,0 +1,63 @@
+package com.finance.transaction;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user version of everything the read API serves, used as the ETag of
+ * transaction lists and insights so an unchanged view is answered with 304
+ * before any query runs. Writes bump the version after they are stored. The
+ * versions only see this node's writes; the TTL bounds how long a write made
+ * elsewhere can hide behind a matching ETag, and the random epoch keeps ETags
+ * from before a restart from ever matching again.
+ */
+@Component
+public class DataVersions {
+  // Clients may keep a copy but must revalidate it; replaces Spring Security's default no-store
+  private static final String CACHE_CONTROL = CacheControl.noCache().cachePrivate().getHeaderValue();
+
+  private final String epoch = Long.toString(new SecureRandom().nextLong() >>> 1, 36);
+  // Node-wide, so a version dropped by the TTL is never handed out again
+  private final AtomicLong sequence = new AtomicLong();
+  private final Cache<String, Long> versions;
+
+  public DataVersions(@Value("${app.transactions.versions.max-size:100000}") long maxSize,
+      @Value("${app.transactions.versions.ttl:PT1M}") Duration ttl) {
+    this.versions = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).build();
+  }
+
+  /**
+   * Strong ETag for the user's data as of now, for a representation that also
+   * depends on {@code variant} (may be null); read it before the data it tags.
+   */
+  public String etag(String userId, String variant) {
+    long version = versions.get(userId, k -> sequence.incrementAndGet());
+    return "\"" + epoch + "-" + Long.toString(version, 36) + (variant != null ? "-" + variant : "") + "\"";
+  }
+
+  /**
+   * Tags the response with the user's current ETag and returns true, with the
+   * status set to 304, when the request's If-None-Match already matches it;
+   * the handler then returns without a body.
+   */
+  public boolean checkNotModified(ServletWebRequest webRequest, String userId, String variant) {
+    if (webRequest.getResponse() != null) {
+      webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+    }
+    return webRequest.checkNotModified(etag(userId, variant));
+  }
+
+  /** Call after the user's data has changed. */
+  public void bump(String userId) {
+    versions.put(userId, sequence.incrementAndGet());
+  }
+}
@@ -0,0 +1,153 @@
+package com.finance.transaction;
+
+import java.util.*;
+
+/**
+ * Case-insensitive multi-keyword matcher (Aho-Corasick compiled to a DFA).
+ * Every keyword carries an integer payload and {@link #firstMatch} returns the
+ * lowest payload of any keyword found in a single pass over the text, so the
+ * cost of a lookup does not grow with the size of the dictionary.
+ */
+final class KeywordMatcher {
+  static final int NO_MATCH = -1;
+
+  // Dotted capital I lower-cases to "i" + U+0307 under String.toLowerCase(Locale.ROOT)
+  private static final char DOTTED_CAPITAL_I = '\u0130';
+  private static final char COMBINING_DOT = '\u0307';
+
+  private final int[] asciiClass = new int[128];
+  private final char[] otherChars;
+  private final int[] otherClass;
+  private final int alphabet;
+  private final int[] delta;
+  private final int[] output;
+  private final int minPayload;
+
+  private KeywordMatcher(Map<String, Integer> keywords) {
+    // Compact alphabet: class 0 stands for every character that appears in no keyword
+    TreeSet<Character> chars = new TreeSet<>();
+    for (String k : keywords.keySet()) {
+      for (int i = 0; i < k.length(); i++) chars.add(k.charAt(i));
+    }
+    int nextClass = 1;
+    List<Character> others = new ArrayList<>();
+    for (char c : chars) {
+      if (c < 128) asciiClass[c] = nextClass++;
+      else others.add(c);
+    }
+    otherChars = new char[others.size()];
+    otherClass = new int[others.size()];
+    for (int i = 0; i < others.size(); i++) {
+      otherChars[i] = others.get(i);
+      otherClass[i] = nextClass++;
+    }
+    alphabet = nextClass;
+
+    // Trie
+    List<int[]> gotoRows = new ArrayList<>();
+    List<Integer> outs = new ArrayList<>();
+    gotoRows.add(newRow());
+    outs.add(Integer.MAX_VALUE);
+    int min = Integer.MAX_VALUE;
+    for (Map.Entry<String, Integer> e : keywords.entrySet()) {
+      int state = 0;
+      String k = e.getKey();
+      for (int i = 0; i < k.length(); i++) {
+        int cls = classOf(k.charAt(i));
+        if (gotoRows.get(state)[cls] < 0) {
+          gotoRows.get(state)[cls] = gotoRows.size();
+          gotoRows.add(newRow());
+          outs.add(Integer.MAX_VALUE);
+        }
+        state = gotoRows.get(state)[cls];
+      }
+      outs.set(state, Math.min(outs.get(state), e.getValue()));
+      min = Math.min(min, e.getValue());
+    }
+    minPayload = min;
+
+    // Breadth-first failure links, folded straight into a full transition table
+    int states = gotoRows.size();
+    delta = new int[states * alphabet];
+    output = new int[states];
+    int[] fail = new int[states];
+    ArrayDeque<Integer> queue = new ArrayDeque<>();
+    for (int cls = 0; cls < alphabet; cls++) {
+      int next = gotoRows.get(0)[cls];
+      delta[cls] = next < 0 ? 0 : next;
+      if (next > 0) queue.add(next);
+    }
+    output[0] = outs.get(0);
+    while (!queue.isEmpty()) {
+      int s = queue.poll();
+      output[s] = Math.min(outs.get(s), output[fail[s]]);
+      for (int cls = 0; cls < alphabet; cls++) {
+        int next = gotoRows.get(s)[cls];
+        if (next < 0) {
+          delta[s * alphabet + cls] = delta[fail[s] * alphabet + cls];
+        } else {
+          fail[next] = delta[fail[s] * alphabet + cls];
+          delta[s * alphabet + cls] = next;
+          queue.add(next);
+        }
+      }
+    }
+  }
+
+  static Builder builder() {
+    return new Builder();
+  }
+
+  /** Lowest payload among the keywords occurring in {@code text}, or {@link #NO_MATCH}. */
+  int firstMatch(CharSequence text) {
+    int best = Integer.MAX_VALUE;
+    int state = 0;
+    for (int i = 0, n = text.length(); i < n; i++) {
+      char c = text.charAt(i);
+      if (c == DOTTED_CAPITAL_I) {
+        state = delta[state * alphabet + classOf('i')];
+        best = Math.min(best, output[state]);
+        c = COMBINING_DOT;
+      }
+      state = delta[state * alphabet + classOf(c < 128 ? c : Character.toLowerCase(c))];
+      if (output[state] < best) {
+        best = output[state];
+        if (best == minPayload) break;
+      }
+    }
+    return best == Integer.MAX_VALUE ? NO_MATCH : best;
+  }
+
+  private int classOf(char c) {
+    if (c < 128) {
+      return asciiClass[(c >= 'A' && c <= 'Z') ? c + 32 : c];
+    }
+    int idx = Arrays.binarySearch(otherChars, c);
+    return idx >= 0 ? otherClass[idx] : 0;
+  }
+
+  private int[] newRow() {
+    int[] row = new int[alphabet];
+    Arrays.fill(row, -1);
+    return row;
+  }
+
+  static final class Builder {
+    private final Map<String, Integer> keywords = new LinkedHashMap<>();
+
+    Builder add(String keyword, int payload) {
+      if (keyword == null || keyword.isEmpty()) {
+        throw new IllegalArgumentException("keyword must not be empty");
+      }
+      if (payload < 0) {
+        throw new IllegalArgumentException("payload must not be negative");
+      }
+      keywords.merge(keyword.toLowerCase(Locale.ROOT), payload, Math::min);
+      return this;
+    }
+
+    KeywordMatcher build() {
+      return new KeywordMatcher(keywords);
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package com.finance.transaction;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+/** A user's merchant names; compact transactions store a merchant as its position in {@code names}. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "merchant_dictionaries")
+public class MerchantDictionary {
+  @Id
+  private String userId;
+  private List<String> names; // append only
+}
@@ -0,0 +1,11 @@
+package com.finance.transaction;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+/**
+ * Non-blocking view of the {@code transactions} collection for the streaming
+ * feed; writes keep going through {@link TransactionRepository}.
+ */
+public interface ReactiveTransactionRepository extends ReactiveMongoRepository<Transaction, String>,
+    ReactiveTransactionRepositoryCustom {
+}
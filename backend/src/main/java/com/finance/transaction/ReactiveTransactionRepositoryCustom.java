@@ -0,0 +1,14 @@
+package com.finance.transaction;
+
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+
+public interface ReactiveTransactionRepositoryCustom {
+  /**
+   * A user's transactions oldest first, ordered by (transactionDate, id), read
+   * from the cursor as the subscriber requests them. {@code from}/{@code to}
+   * are inclusive and optional.
+   */
+  Flux<Transaction> streamByUserId(String userId, LocalDate from, LocalDate to);
+}
@@ -0,0 +1,33 @@
+package com.finance.transaction;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+
+class ReactiveTransactionRepositoryImpl implements ReactiveTransactionRepositoryCustom {
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final TransactionCodec codec;
+
+  ReactiveTransactionRepositoryImpl(ReactiveMongoTemplate mongoTemplate, TransactionCodec codec) {
+    this.mongoTemplate = mongoTemplate;
+    this.codec = codec;
+  }
+
+  /**
+   * Reads plain documents and maps them here: mapping straight to
+   * {@link Transaction} would decode compact merchants inside the driver's
+   * callback, with a blocking dictionary read whenever the cached copy is short.
+   */
+  @Override
+  public Flux<Transaction> streamByUserId(String userId, LocalDate from, LocalDate to) {
+    String collection = mongoTemplate.getCollectionName(Transaction.class);
+    return mongoTemplate.find(TransactionQueries.feed(userId, from, to), Document.class, collection)
+      .concatMap(codec::withMerchants)
+      .map(doc -> {
+        codec.decode(doc, false);
+        return mongoTemplate.getConverter().read(Transaction.class, doc);
+      });
+  }
+}
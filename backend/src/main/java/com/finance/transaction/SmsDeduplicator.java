@@ -0,0 +1,182 @@
+package com.finance.transaction;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+
+/**
+ * Per-node front for idempotent SMS ingestion. Content hashes this node has
+ * stored go into a Bloom filter, so a message whose hash is definitely new goes
+ * straight to the insert without a lookup, and the most recent transactions are
+ * kept by hash, so a retry is answered without touching Mongo at all. The
+ * unique index on {@link Transaction#getContentHash()} stays the arbiter for
+ * everything the node has not seen, e.g. after a restart or on another node.
+ */
+@Component
+public class SmsDeduplicator {
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private final long capacity;
+  private final double falsePositiveRate;
+  private final Cache<String, Transaction> recent;
+  private final Counter bloomMissCounter;
+  private final Counter recentHitCounter;
+  private final Counter storedHitCounter;
+  private final Counter falsePositiveCounter;
+  private volatile Bloom current;
+  private volatile Bloom previous;
+
+  public SmsDeduplicator(MeterRegistry registry,
+      @Value("${app.transactions.dedup.expected-entries:1000000}") long capacity,
+      @Value("${app.transactions.dedup.false-positive-rate:0.01}") double falsePositiveRate,
+      @Value("${app.transactions.dedup.recent.max-size:10000}") long recentMaxSize,
+      @Value("${app.transactions.dedup.recent.ttl:PT10M}") Duration recentTtl) {
+    this.capacity = capacity;
+    this.falsePositiveRate = falsePositiveRate;
+    this.current = new Bloom(capacity, falsePositiveRate);
+    this.previous = current;
+    this.recent = Caffeine.newBuilder().maximumSize(recentMaxSize).expireAfterWrite(recentTtl).build();
+    this.bloomMissCounter = outcomeCounter(registry, "bloom_miss");
+    this.recentHitCounter = outcomeCounter(registry, "recent_hit");
+    this.storedHitCounter = outcomeCounter(registry, "stored_hit");
+    this.falsePositiveCounter = outcomeCounter(registry, "false_positive");
+  }
+
+  /** Hex SHA-256 of the user and the message with case and whitespace runs normalised; null for blank messages. */
+  public String hash(String userId, String rawMessage) {
+    if (rawMessage == null || rawMessage.isBlank()) return null;
+    String normalised = WHITESPACE.matcher(rawMessage.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(userId.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) '\n');
+      return HexFormat.of().formatHex(digest.digest(normalised.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** False when no transaction with this hash was stored through this node. */
+  public boolean mightExist(String hash) {
+    boolean maybe = current.mightContain(hash) || previous.mightContain(hash);
+    if (!maybe) bloomMissCounter.increment();
+    return maybe;
+  }
+
+  /** A transaction recently stored or served with this hash, if this node still has it. */
+  public Transaction recent(String hash) {
+    Transaction t = recent.getIfPresent(hash);
+    if (t != null) recentHitCounter.increment();
+    return t;
+  }
+
+  /** Records stored (or found) transactions that carry a content hash. */
+  public void remember(Collection<Transaction> txs) {
+    for (Transaction t : txs) {
+      if (t.getContentHash() == null) continue;
+      recent.put(t.getContentHash(), t);
+      if (!current.mightContain(t.getContentHash())) add(t.getContentHash());
+    }
+  }
+
+  /** Counts duplicates that had to be found in Mongo, by lookup or through the unique index. */
+  public void storedHit(int n) {
+    storedHitCounter.increment(n);
+  }
+
+  /** Counts Bloom positives that Mongo did not confirm. */
+  public void falsePositive(int n) {
+    falsePositiveCounter.increment(n);
+  }
+
+  /** Deleted transactions must not be handed out as duplicates; the Bloom filter cannot forget and need not. */
+  public void forget(Collection<Transaction> txs) {
+    for (Transaction t : txs) {
+      if (t.getContentHash() != null) recent.invalidate(t.getContentHash());
+    }
+  }
+
+  /** As {@link #forget} for a range delete, which does not know the deleted rows. */
+  public void forget(String userId, LocalDate from, LocalDate to) {
+    recent.asMap().values().removeIf(t -> userId.equals(t.getUserId())
+      && (from == null || !t.getTransactionDate().isBefore(from))
+      && (to == null || !t.getTransactionDate().isAfter(to)));
+  }
+
+  private void add(String hash) {
+    Bloom bloom = current;
+    if (bloom.count.get() >= capacity) {
+      synchronized (this) {
+        // Keep the full filter for lookups, so only hashes two generations old are forgotten
+        if (current == bloom) {
+          previous = bloom;
+          current = new Bloom(capacity, falsePositiveRate);
+        }
+        bloom = current;
+      }
+    }
+    bloom.add(hash);
+  }
+
+  private static Counter outcomeCounter(MeterRegistry registry, String outcome) {
+    return Counter.builder("finance.transactions.dedup")
+      .description("Idempotent SMS ingestion lookups by outcome")
+      .tag("outcome", outcome)
+      .register(registry);
+  }
+
+  /** Standard Bloom filter over the hex hash; the probe positions come from its first 128 bits. */
+  private static final class Bloom {
+    final AtomicLongArray words;
+    final long bits;
+    final int probes;
+    final AtomicLong count = new AtomicLong();
+
+    Bloom(long capacity, double falsePositiveRate) {
+      long size = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+      this.words = new AtomicLongArray((int) Math.max(1, (size + 63) / 64));
+      this.bits = words.length() * 64L;
+      this.probes = (int) Math.max(1, Math.round((double) bits / capacity * Math.log(2)));
+    }
+
+    void add(String hash) {
+      long h1 = Long.parseUnsignedLong(hash, 0, 16, 16);
+      long h2 = Long.parseUnsignedLong(hash, 16, 32, 16);
+      for (int i = 0; i < probes; i++) {
+        long bit = Math.floorMod(h1 + i * h2, bits);
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long prev;
+        do {
+          prev = words.get(word);
+        } while ((prev & mask) == 0 && !words.compareAndSet(word, prev, prev | mask));
+      }
+      count.incrementAndGet();
+    }
+
+    boolean mightContain(String hash) {
+      long h1 = Long.parseUnsignedLong(hash, 0, 16, 16);
+      long h2 = Long.parseUnsignedLong(hash, 16, 32, 16);
+      for (int i = 0; i < probes; i++) {
+        long bit = Math.floorMod(h1 + i * h2, bits);
+        if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+      }
+      return true;
+    }
+  }
+}
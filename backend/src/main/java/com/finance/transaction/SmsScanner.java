@@ -0,0 +1,225 @@
+package com.finance.transaction;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Hand-rolled, allocation-free equivalents of the amount and date regexes in
+ * {@link TransactionParserService}. Each scanner reproduces the leftmost-match
+ * semantics of the corresponding pattern, so both parser modes produce the
+ * same fields.
+ */
+final class SmsScanner {
+  private static final double[] POW10 = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+  // Largest mantissa for which mantissa / 10^k is still correctly rounded
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  private SmsScanner() {
+  }
+
+  /**
+   * Mirrors {@code (?:rs\.?|inr|₹)\s*([0-9,]+\.?[0-9]*)|([0-9,]+\.?[0-9]*)\s*(?:rs\.?|inr|₹)}
+   * and returns the captured number, or 0.0 when nothing matches.
+   */
+  static double amount(String s) {
+    int n = s.length();
+    for (int i = 0; i < n; i++) {
+      int afterCurrency = currencyEnd(s, i);
+      if (afterCurrency >= 0) {
+        int start = skipSpaces(s, afterCurrency);
+        if (start < n && isNumberChar(s.charAt(start))) {
+          return number(s, start, numberEnd(s, start));
+        }
+      }
+      if (isNumberChar(s.charAt(i))) {
+        int run = i;
+        while (run < n && isNumberChar(s.charAt(run))) run++;
+        if (run < n && s.charAt(run) == '.') {
+          int fraction = run + 1;
+          while (fraction < n && isDigit(s.charAt(fraction))) fraction++;
+          if (currencyEnd(s, skipSpaces(s, fraction)) >= 0) {
+            return number(s, i, fraction);
+          }
+        }
+        if (currencyEnd(s, skipSpaces(s, run)) >= 0) {
+          return number(s, i, run);
+        }
+      }
+    }
+    return 0.0;
+  }
+
+  /**
+   * Parses {@code [0-9,]+\.?[0-9]*} in {@code s[from, to)} ignoring the digit
+   * grouping commas; same result as {@code Double.parseDouble} on the cleaned text.
+   */
+  static double number(String s, int from, int to) {
+    long mantissa = 0;
+    int digits = 0;
+    int fractionDigits = -1;
+    for (int i = from; i < to; i++) {
+      char c = s.charAt(i);
+      if (c == '.') {
+        fractionDigits = 0;
+      } else if (c != ',') {
+        mantissa = mantissa * 10 + (c - '0');
+        digits++;
+        if (fractionDigits >= 0) fractionDigits++;
+        if (mantissa > MAX_EXACT_MANTISSA) return slowNumber(s, from, to);
+      }
+    }
+    if (digits == 0 || fractionDigits >= POW10.length) return slowNumber(s, from, to);
+    return fractionDigits > 0 ? mantissa / POW10[fractionDigits] : mantissa;
+  }
+
+  private static double slowNumber(String s, int from, int to) {
+    return Double.parseDouble(s.substring(from, to).replace(",", ""));
+  }
+
+  /**
+   * Mirrors {@code (?<!\w)(\d{1,2}[/-]\d{1,2}[/-]\d{2,4})(?!\w)|(?<!\w)(\d{4}[/-]\d{1,2}[/-]\d{1,2})(?!\w)}
+   * followed by the "d-M-yy" / "yyyy-M-d" formatters in SMART resolution.
+   * Returns null when there is no match or the first match does not resolve.
+   */
+  static LocalDate date(String s) {
+    int n = s.length();
+    for (int i = 0; i < n; i++) {
+      if (!isDigit(s.charAt(i)) || isWordBefore(s, i)) continue;
+
+      // d-M-yy
+      int a = digitRun(s, i);
+      if (a - i <= 2 && isSeparator(s, a)) {
+        int b = digitRun(s, a + 1);
+        if (b - a - 1 >= 1 && b - a - 1 <= 2 && isSeparator(s, b)) {
+          int c = digitRun(s, b + 1);
+          int yearDigits = c - b - 1;
+          if (yearDigits >= 2 && yearDigits <= 4 && !isWordAt(s, c)) {
+            // "yy" only accepts exactly two digits; longer years leave unparsed text
+            if (yearDigits != 2) return null;
+            return resolve(2000 + digits(s, b + 1, c), digits(s, a + 1, b), digits(s, i, a));
+          }
+        }
+      }
+
+      // yyyy-M-d
+      if (a - i == 4 && isSeparator(s, a)) {
+        int b = digitRun(s, a + 1);
+        if (b - a - 1 >= 1 && b - a - 1 <= 2 && isSeparator(s, b)) {
+          int c = digitRun(s, b + 1);
+          if (c - b - 1 >= 1 && c - b - 1 <= 2 && !isWordAt(s, c)) {
+            int year = digits(s, i, a);
+            return year == 0 ? null : resolve(year, digits(s, a + 1, b), digits(s, b + 1, c));
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  /** The number starting at {@code from} as the amount and balance patterns read it, or NaN if none starts there. */
+  static double leadingNumber(String s, int from) {
+    if (from >= s.length() || !isNumberChar(s.charAt(from))) return Double.NaN;
+    return number(s, from, numberEnd(s, from));
+  }
+
+  /** Start of the first whitespace-delimited word longer than 3 chars that begins upper-case, or -1. */
+  static int capitalisedWordStart(String s) {
+    int n = s.length();
+    int i = 0;
+    while (i < n) {
+      while (i < n && isSpace(s.charAt(i))) i++;
+      int start = i;
+      while (i < n && !isSpace(s.charAt(i))) i++;
+      if (i - start > 3 && Character.isUpperCase(s.charAt(start))) return start;
+    }
+    return -1;
+  }
+
+  static int wordEnd(String s, int start) {
+    int i = start;
+    while (i < s.length() && !isSpace(s.charAt(i))) i++;
+    return i;
+  }
+
+  // SMART resolver: day-of-month beyond the month's length clamps to its last day
+  private static LocalDate resolve(int year, int month, int day) {
+    if (month < 1 || month > 12 || day < 1 || day > 31) return null;
+    YearMonth ym = YearMonth.of(year, month);
+    return ym.atDay(Math.min(day, ym.lengthOfMonth()));
+  }
+
+  private static int currencyEnd(String s, int i) {
+    int n = s.length();
+    if (i >= n) return -1;
+    char c = s.charAt(i);
+    if (c == '\u20B9') return i + 1;
+    if ((c == 'r' || c == 'R') && i + 1 < n && (s.charAt(i + 1) == 's' || s.charAt(i + 1) == 'S')) {
+      return i + 2 < n && s.charAt(i + 2) == '.' ? i + 3 : i + 2;
+    }
+    if ((c == 'i' || c == 'I') && i + 2 < n
+        && (s.charAt(i + 1) == 'n' || s.charAt(i + 1) == 'N')
+        && (s.charAt(i + 2) == 'r' || s.charAt(i + 2) == 'R')) {
+      return i + 3;
+    }
+    return -1;
+  }
+
+  static int numberEnd(String s, int i) {
+    int n = s.length();
+    while (i < n && isNumberChar(s.charAt(i))) i++;
+    if (i < n && s.charAt(i) == '.') {
+      i++;
+      while (i < n && isDigit(s.charAt(i))) i++;
+    }
+    return i;
+  }
+
+  private static int skipSpaces(String s, int i) {
+    while (i < s.length() && isSpace(s.charAt(i))) i++;
+    return i;
+  }
+
+  private static int digitRun(String s, int i) {
+    while (i < s.length() && isDigit(s.charAt(i))) i++;
+    return i;
+  }
+
+  private static int digits(String s, int from, int to) {
+    int v = 0;
+    for (int i = from; i < to; i++) v = v * 10 + (s.charAt(i) - '0');
+    return v;
+  }
+
+  private static boolean isSeparator(String s, int i) {
+    return i < s.length() && (s.charAt(i) == '/' || s.charAt(i) == '-');
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isNumberChar(char c) {
+    return isDigit(c) || c == ',';
+  }
+
+  // The \s class without UNICODE_CHARACTER_CLASS
+  static boolean isSpace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  // (?<!\w) and (?!\w): only ASCII letters, digits and '_' are word characters
+  private static boolean isWordBefore(String s, int i) {
+    return i > 0 && isWord(s.charAt(i - 1));
+  }
+
+  private static boolean isWordAt(String s, int i) {
+    return i < s.length() && isWord(s.charAt(i));
+  }
+
+  private static boolean isWord(char c) {
+    return c == '_' || isDigit(c) || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
+}
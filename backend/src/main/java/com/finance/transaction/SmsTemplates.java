@@ -0,0 +1,327 @@
+package com.finance.transaction;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Learned layouts of bank SMS. A message's shape masks its variable tokens:
+ * every alphanumeric token holding a digit (amounts, dates, account numbers)
+ * and every run of capitalised words (names) becomes a slot, and the rest is
+ * kept verbatim as the template key. Capitalised words that the parser's
+ * patterns could react to ("at", "Bal", "Rs", ...) are kept verbatim as well,
+ * so two messages with the same key take the same path through the full
+ * parse. Once enough messages of a key have mapped amount, balance and
+ * merchant to the same slots, later messages read those fields by position;
+ * the date is still scanned for, which is cheap next to the patterns. Slots
+ * are checked before they are read, and a message whose slots do not hold what
+ * the template expects (a word the patterns react to glued to a number, a
+ * number slot that is not a plain number, a date that does not parse, a
+ * merchant running over a number) is parsed in full.
+ */
+final class SmsTemplates {
+  private static final char NUMBER_SLOT = '\u0001';
+  private static final char NAME_SLOT = '\u0002';
+  private static final char DATE_SLOT = '\u0003';
+  private static final int MAX_ATTEMPTS = 8;
+
+  /** A message with its slots located; {@code key} is equal for messages of the same template. */
+  record Shape(String key, int[] starts, int[] ends, boolean[] numeric) {
+    int slots() {
+      return starts.length;
+    }
+  }
+
+  /** A char offset that is {@code delta} after the end of slot {@code anchor}, or after the start with -1. */
+  record Position(int anchor, int delta) {
+    int resolve(Shape shape) {
+      return (anchor < 0 ? 0 : shape.ends()[anchor]) + delta;
+    }
+  }
+
+  /** Where a template keeps its fields; -1 slots are absent, a null merchant comes from the word fallback. */
+  record Layout(int amountSlot, int balanceSlot, Position merchantStart, Position merchantEnd) {
+  }
+
+  /** Fields read by position. */
+  record Fields(double amount, String merchant, LocalDate date, Double balance) {
+  }
+
+  private static final class Entry {
+    // Written under the entry's lock; extraction reads them without it
+    volatile Layout layout;
+    volatile boolean trusted;
+    int confirmations;
+    int attempts;
+    boolean unstable;
+  }
+
+  private final Cache<String, Entry> entries;
+  private final int requiredConfirmations;
+
+  SmsTemplates(long maxSize, int requiredConfirmations) {
+    this.entries = Caffeine.newBuilder().maximumSize(maxSize).recordStats().build();
+    this.requiredConfirmations = Math.max(1, requiredConfirmations);
+  }
+
+  Cache<String, ?> cache() {
+    return entries;
+  }
+
+  static Shape shape(String s) {
+    int n = s.length();
+    StringBuilder key = new StringBuilder(n);
+    int[] starts = new int[8];
+    int[] ends = new int[8];
+    boolean[] numeric = new boolean[8];
+    int slots = 0;
+    int i = 0;
+    while (i < n) {
+      char c = s.charAt(i);
+      if (!Character.isLetterOrDigit(c)) {
+        key.append(c);
+        i++;
+        continue;
+      }
+      int end = tokenEnd(s, i);
+      boolean hasDigit = false;
+      boolean separated = false;
+      for (int k = i; k < end; k++) {
+        char t = s.charAt(k);
+        hasDigit |= Character.isDigit(t);
+        separated |= t == '/' || t == '-';
+      }
+      boolean name = !hasDigit && Character.isUpperCase(c) && !structural(s, i, end);
+      if (!hasDigit && !name) {
+        key.append(s, i, end);
+        i = end;
+        continue;
+      }
+      if (name) {
+        // Following capitalised words joined by whitespace belong to the same name
+        int next = end;
+        while (true) {
+          int w = next;
+          while (w < n && SmsScanner.isSpace(s.charAt(w))) w++;
+          if (w == next || w >= n || !Character.isUpperCase(s.charAt(w))) break;
+          int wEnd = tokenEnd(s, w);
+          boolean digits = false;
+          for (int k = w; k < wEnd && !digits; k++) digits = Character.isDigit(s.charAt(k));
+          if (digits || structural(s, w, wEnd)) break;
+          end = next = wEnd;
+        }
+      }
+      if (slots == starts.length) {
+        starts = Arrays.copyOf(starts, slots * 2);
+        ends = Arrays.copyOf(ends, slots * 2);
+        numeric = Arrays.copyOf(numeric, slots * 2);
+      }
+      starts[slots] = i;
+      ends[slots] = end;
+      numeric[slots] = hasDigit;
+      slots++;
+      // Date-shaped numbers get their own kind, so a plain number and a date never share a key
+      key.append(!hasDigit ? NAME_SLOT : separated ? DATE_SLOT : NUMBER_SLOT);
+      i = end;
+    }
+    return new Shape(key.toString(), Arrays.copyOf(starts, slots), Arrays.copyOf(ends, slots),
+      Arrays.copyOf(numeric, slots));
+  }
+
+  /** The fields of a message whose template is trusted, or null to parse it in full. */
+  Fields extract(Shape shape, String s) {
+    Entry entry = entries.getIfPresent(shape.key());
+    Layout layout = entry != null && entry.trusted ? entry.layout : null;
+    if (layout == null || glued(shape, s)) return null;
+    if (!plainNumber(shape, s, layout.amountSlot()) || !plainNumber(shape, s, layout.balanceSlot())) return null;
+
+    double amount = layout.amountSlot() < 0 ? 0.0 : SmsScanner.leadingNumber(s, shape.starts()[layout.amountSlot()]);
+    Double balance = layout.balanceSlot() < 0 ? null
+      : SmsScanner.leadingNumber(s, shape.starts()[layout.balanceSlot()]);
+    if (Double.isNaN(amount) || (balance != null && balance.isNaN())) return null;
+    // Dates are cheap to scan for, and whether one is valid is not part of the key
+    LocalDate date = SmsScanner.date(s);
+    if (date == null) {
+      for (int k = 0; k < shape.slots(); k++) {
+        if (dateShaped(shape, s, k)) return null;
+      }
+      date = LocalDate.now();
+    }
+    String merchant;
+    if (layout.merchantStart() == null) {
+      int start = SmsScanner.capitalisedWordStart(s);
+      merchant = start >= 0 ? s.substring(start, SmsScanner.wordEnd(s, start)) : "Unknown";
+    } else {
+      int from = layout.merchantStart().resolve(shape);
+      int to = layout.merchantEnd().resolve(shape);
+      if (from < 0 || to > s.length() || from >= to) return null;
+      for (int k = 0; k < shape.slots(); k++) {
+        if (shape.numeric()[k] && shape.ends()[k] > from && shape.starts()[k] < to) return null;
+      }
+      merchant = s.substring(from, to);
+    }
+    return new Fields(amount, merchant, date, balance);
+  }
+
+  /**
+   * Maps a fully parsed message onto its slots. {@code merchantFrom}/{@code merchantTo}
+   * is the merchant pattern's trimmed match (-1 when it did not match) and
+   * {@code balanceFrom} the start of the balance number (-1 without one).
+   * Returns true when this message made the template trusted.
+   */
+  boolean learn(Shape shape, String s, Transaction parsed, int merchantFrom, int merchantTo, int balanceFrom) {
+    // Such messages are never read by position, and their layout could unsettle the key's plain messages
+    if (glued(shape, s)) return false;
+    Entry entry = entries.get(shape.key(), k -> new Entry());
+    synchronized (entry) {
+      if (entry.trusted || entry.unstable) return false;
+      Layout layout = layout(shape, s, parsed, merchantFrom, merchantTo, balanceFrom);
+      if (layout == null) {
+        // Ambiguous here (e.g. amount equal to balance); another message may settle it
+        if (++entry.attempts >= MAX_ATTEMPTS) entry.unstable = true;
+        return false;
+      }
+      if (entry.layout == null) {
+        entry.layout = layout;
+        entry.confirmations = 1;
+      } else if (entry.layout.equals(layout)) {
+        entry.confirmations++;
+      } else {
+        entry.unstable = true;
+        return false;
+      }
+      entry.trusted = entry.confirmations >= requiredConfirmations;
+      return entry.trusted;
+    }
+  }
+
+  /** Stops using a template whose extraction disagreed with the full parse. */
+  void reject(Shape shape) {
+    Entry entry = entries.getIfPresent(shape.key());
+    if (entry == null) return;
+    synchronized (entry) {
+      entry.trusted = false;
+      entry.unstable = true;
+    }
+  }
+
+  private static Layout layout(Shape shape, String s, Transaction parsed, int merchantFrom, int merchantTo,
+      int balanceFrom) {
+    int amountSlot = -1;
+    for (int k = 0; k < shape.slots(); k++) {
+      if (!shape.numeric()[k] || SmsScanner.leadingNumber(s, shape.starts()[k]) != parsed.getAmount()) continue;
+      if (amountSlot >= 0) return null;
+      amountSlot = k;
+    }
+    if (amountSlot < 0 && parsed.getAmount() != 0.0) return null;
+
+    int balanceSlot = -1;
+    if (balanceFrom >= 0) {
+      balanceSlot = slotStartingAt(shape, balanceFrom);
+      if (balanceSlot < 0 || !shape.numeric()[balanceSlot]) return null;
+    }
+
+    Position merchantStart = null;
+    Position merchantEnd = null;
+    if (merchantFrom >= 0) {
+      for (int k = 0; k < shape.slots(); k++) {
+        // Numbers can end the merchant pattern part-way, so they may not be inside it
+        if (shape.numeric()[k] && shape.ends()[k] > merchantFrom && shape.starts()[k] < merchantTo) return null;
+      }
+      merchantStart = position(shape, merchantFrom);
+      merchantEnd = position(shape, merchantTo);
+      if (merchantStart == null || merchantEnd == null) return null;
+    }
+    return new Layout(amountSlot, balanceSlot, merchantStart, merchantEnd);
+  }
+
+  // Offsets inside a slot cannot be carried over to other messages
+  private static Position position(Shape shape, int offset) {
+    int anchor = -1;
+    for (int k = 0; k < shape.slots(); k++) {
+      if (shape.ends()[k] <= offset) {
+        anchor = k;
+      } else if (shape.starts()[k] < offset) {
+        return null;
+      } else {
+        break;
+      }
+    }
+    return new Position(anchor, offset - (anchor < 0 ? 0 : shape.ends()[anchor]));
+  }
+
+  private static int slotStartingAt(Shape shape, int offset) {
+    for (int k = 0; k < shape.slots(); k++) {
+      if (shape.starts()[k] == offset) return k;
+    }
+    return -1;
+  }
+
+  /**
+   * Whether a number slot carries a word the patterns react to ("1,234Rs",
+   * "Bal1,234", "at05/03/24"). The key masks it with the number, so messages
+   * of one key could need different parses.
+   */
+  private static boolean glued(Shape shape, String s) {
+    for (int k = 0; k < shape.slots(); k++) {
+      if (!shape.numeric()[k]) continue;
+      int end = shape.ends()[k];
+      int i = shape.starts()[k];
+      while (i < end) {
+        if (!Character.isLetter(s.charAt(i))) {
+          i++;
+          continue;
+        }
+        int word = i;
+        while (i < end && Character.isLetter(s.charAt(i))) i++;
+        if (structural(s, word, i)) return true;
+      }
+    }
+    return false;
+  }
+
+  // Absent slots pass; present ones must be read whole as one number
+  private static boolean plainNumber(Shape shape, String s, int slot) {
+    return slot < 0 || SmsScanner.numberEnd(s, shape.starts()[slot]) == shape.ends()[slot];
+  }
+
+  private static boolean dateShaped(Shape shape, String s, int slot) {
+    if (!shape.numeric()[slot]) return false;
+    for (int i = shape.starts()[slot]; i < shape.ends()[slot]; i++) {
+      if (s.charAt(i) == '/' || s.charAt(i) == '-') return true;
+    }
+    return false;
+  }
+
+  // Letters and digits, plus , . / - between two digits
+  private static int tokenEnd(String s, int i) {
+    int n = s.length();
+    while (i < n) {
+      char c = s.charAt(i);
+      if (Character.isLetterOrDigit(c)) {
+        i++;
+      } else if ((c == ',' || c == '.' || c == '/' || c == '-') && i > 0 && i + 1 < n
+          && Character.isDigit(s.charAt(i - 1)) && Character.isDigit(s.charAt(i + 1))) {
+        i++;
+      } else {
+        break;
+      }
+    }
+    return i;
+  }
+
+  /**
+   * Words the parser's patterns can match inside or next to: merchant markers
+   * (..at, ..to, ..from, on..), balance keywords and currency symbols. Masking
+   * them could give two messages with one key different parses.
+   */
+  private static boolean structural(String s, int from, int to) {
+    String w = s.substring(from, to).toLowerCase(Locale.ROOT);
+    return w.endsWith("at") || w.endsWith("to") || w.endsWith("from") || w.startsWith("on")
+      || w.contains("bal") || w.contains("available")
+      || w.startsWith("rs") || w.endsWith("rs") || w.startsWith("inr") || w.endsWith("inr");
+  }
+}
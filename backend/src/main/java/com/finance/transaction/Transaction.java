@@ -1,10 +1,13 @@
 package com.finance.transaction;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDate;
@@ -14,6 +17,8 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "transactions")
+// Serves every repository query: userId equality, transactionDate range/sort and the (date, _id) keyset
+@CompoundIndex(name = "user_date_id", def = "{ 'userId': 1, 'transactionDate': -1, '_id': -1 }")
 public class Transaction {
   @Id
   private String id;
@@ -25,4 +30,8 @@ public class Transaction {
   private LocalDate transactionDate;
   private String rawMessage;
   private Double balance;
+  // Set on SMS ingestion: hash of the user and normalised message, unique so a resubmission cannot be stored twice
+  @JsonIgnore
+  @Indexed(name = "content_hash_unique", unique = true, sparse = true)
+  private String contentHash;
 }
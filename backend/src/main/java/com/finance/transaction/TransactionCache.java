@@ -0,0 +1,151 @@
+package com.finance.transaction;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Hot per-user copy of the recent months of transactions in columnar form,
+ * bounded by total size. Full list reads load a user on first use; paged
+ * reads only use users that are already loaded, so a small page never pays for
+ * reading a year of rows. The transaction write path
+ * updates loaded users in place, and the TTL bounds how long writes made by
+ * another node can go unnoticed. Users found too large to cache are remembered
+ * for longer, as they rarely shrink back under the limit.
+ */
+@Service
+public class TransactionCache {
+  // Stored for users that cannot be cached, so they are not reloaded on every read
+  private static final TransactionColumns UNCACHEABLE = TransactionColumns.of(LocalDate.MAX, false, List.of());
+
+  private final TransactionRepository repository;
+  private final boolean enabled;
+  private final int months;
+  private final int maxRowsPerUser;
+  private final Cache<String, TransactionColumns> cache;
+
+  public TransactionCache(TransactionRepository repository, MeterRegistry registry,
+      @Value("${app.transactions.cache.enabled:true}") boolean enabled,
+      @Value("${app.transactions.cache.max-size:256MB}") DataSize maxSize,
+      @Value("${app.transactions.cache.months:13}") int months,
+      @Value("${app.transactions.cache.max-rows-per-user:100000}") int maxRowsPerUser,
+      @Value("${app.transactions.cache.ttl:PT10M}") Duration ttl,
+      @Value("${app.transactions.cache.uncacheable-ttl:PT6H}") Duration uncacheableTtl) {
+    this.repository = repository;
+    this.enabled = enabled;
+    this.months = months;
+    this.maxRowsPerUser = maxRowsPerUser;
+    this.cache = Caffeine.newBuilder()
+      .maximumWeight(maxSize.toBytes())
+      .weigher((String userId, TransactionColumns columns) -> (int) Math.min(Integer.MAX_VALUE, columns.weight()))
+      .expireAfter(new Expiry<String, TransactionColumns>() {
+        @Override
+        public long expireAfterCreate(String userId, TransactionColumns columns, long now) {
+          return (columns == UNCACHEABLE ? uncacheableTtl : ttl).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String userId, TransactionColumns columns, long now, long remaining) {
+          return expireAfterCreate(userId, columns, now);
+        }
+
+        @Override
+        public long expireAfterRead(String userId, TransactionColumns columns, long now, long remaining) {
+          return remaining;
+        }
+      })
+      .recordStats()
+      .build();
+    CaffeineCacheMetrics.monitor(registry, cache, "transactions");
+  }
+
+  /**
+   * The user's transactions with {@code from <= date <= to}, newest first, or
+   * empty when the range reaches back before the cached window.
+   */
+  public Optional<List<Transaction>> find(String userId, LocalDate from, LocalDate to) {
+    return load(userId, from).map(c -> c.get(userId, c.startOf(to), c.endOf(from)));
+  }
+
+  /**
+   * One keyset page in the order of {@link TransactionRepositoryCustom#findPage},
+   * or empty when the user is not loaded; never loads.
+   */
+  public Optional<List<Transaction>> findPage(String userId, LocalDate from, LocalDate to, TransactionCursor after,
+      int limit) {
+    return peek(userId, from).flatMap(c -> {
+      int start = c.startOf(to);
+      if (after != null) {
+        int next = c.after(after);
+        if (next < 0) return Optional.empty();
+        start = Math.max(start, next);
+      }
+      int end = c.endOf(from);
+      return Optional.of(c.get(userId, start, Math.max(start, Math.min(end, start + limit))));
+    });
+  }
+
+  /** The user's columns if they are loaded and cover {@code from}; never loads. */
+  public Optional<TransactionColumns> peek(String userId, LocalDate from) {
+    if (!enabled) return Optional.empty();
+    TransactionColumns columns = cache.getIfPresent(userId);
+    return columns != null && columns != UNCACHEABLE && columns.covers(from) ? Optional.of(columns) : Optional.empty();
+  }
+
+  /** Write-through for stored transactions; users that are not loaded are left alone. */
+  public void added(String userId, Collection<Transaction> txs) {
+    update(userId, txs, List.of());
+  }
+
+  /** Write-through for deleted transactions. */
+  public void removed(String userId, Collection<Transaction> txs) {
+    update(userId, List.of(), txs);
+  }
+
+  /** Drops the user, for writes that bypass {@link TransactionService}. */
+  public void evict(String userId) {
+    cache.invalidate(userId);
+  }
+
+  private void update(String userId, Collection<Transaction> added, Collection<Transaction> removed) {
+    if (!enabled) return;
+    cache.asMap().computeIfPresent(userId, (k, columns) -> {
+      if (columns == UNCACHEABLE) return columns;
+      TransactionColumns next = columns.with(added, removed);
+      return next != null && next.size() <= maxRowsPerUser ? next : UNCACHEABLE;
+    });
+  }
+
+  private Optional<TransactionColumns> load(String userId, LocalDate from) {
+    if (!enabled) return Optional.empty();
+    TransactionColumns columns = cache.get(userId, this::read);
+    return columns != UNCACHEABLE && columns.covers(from) ? Optional.of(columns) : Optional.empty();
+  }
+
+  // Writes for the user wait for this load; ids it already picked up are skipped when they are applied
+  private TransactionColumns read(String userId) {
+    LocalDate windowStart = YearMonth.now().minusMonths(months - 1L).atDay(1);
+    List<Transaction> rows = new ArrayList<>();
+    try (Stream<Transaction> txs = repository.streamByUserId(userId, windowStart, null)) {
+      Iterator<Transaction> it = txs.iterator();
+      while (it.hasNext()) {
+        if (rows.size() == maxRowsPerUser) return UNCACHEABLE;
+        rows.add(it.next());
+      }
+    }
+    boolean complete = !repository.existsByUserIdAndTransactionDateBefore(userId, windowStart);
+    TransactionColumns columns = TransactionColumns.of(windowStart, complete, rows);
+    return columns != null ? columns : UNCACHEABLE;
+  }
+}
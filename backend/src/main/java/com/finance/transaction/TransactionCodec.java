@@ -0,0 +1,188 @@
+package com.finance.transaction;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterLoadEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Compact storage of transactions (app.storage.compact): type and the parser's
+ * categories are written as small integer codes and merchants as their index in
+ * the user's {@link MerchantDictionary}. Stored documents are decoded back to
+ * strings whenever they are loaded, whatever the flag, so compact and plain
+ * documents can live side by side. Other categories and types stay strings.
+ * Decoding a merchant the cached dictionary does not know yet reads the
+ * dictionary, so reactive reads load it with {@link #withMerchants} first.
+ */
+@Component
+public class TransactionCodec extends AbstractMongoEventListener<Transaction> {
+  private static final Logger log = LoggerFactory.getLogger(TransactionCodec.class);
+
+  // Append only: a stored code is the position in the list plus one
+  private static final List<String> TYPES = List.of("debit", "credit");
+  private static final List<String> CATEGORIES = List.of(
+    "Food & Dining", "Shopping", "Travel & Transport", "Bills & Utilities", "Subscriptions", "Healthcare",
+    "Entertainment", "Cash Withdrawal", "Transfers", "Income", "Uncategorized");
+
+  private static final Map<String, Integer> TYPE_CODES = codes(TYPES);
+  private static final Map<String, Integer> CATEGORY_CODES = codes(CATEGORIES);
+
+  private record Merchants(List<String> names, Map<String, Integer> codes) {
+    static Merchants of(List<String> names) {
+      Map<String, Integer> codes = new HashMap<>(names.size() * 2);
+      for (int i = 0; i < names.size(); i++) {
+        codes.putIfAbsent(names.get(i), i);
+      }
+      return new Merchants(List.copyOf(names), codes);
+    }
+  }
+
+  private final MongoTemplate mongoTemplate;
+  private final ReactiveMongoTemplate reactiveMongoTemplate;
+  private final boolean compact;
+  private final Cache<String, Merchants> merchants;
+
+  public TransactionCodec(MongoTemplate mongoTemplate, ReactiveMongoTemplate reactiveMongoTemplate,
+      @Value("${app.storage.compact:false}") boolean compact,
+      @Value("${app.storage.merchant-cache.max-size:10000}") long merchantCacheMaxSize) {
+    this.mongoTemplate = mongoTemplate;
+    this.reactiveMongoTemplate = reactiveMongoTemplate;
+    this.compact = compact;
+    // Dictionaries only grow, so a cached copy stays valid for every code it holds
+    this.merchants = Caffeine.newBuilder().maximumSize(merchantCacheMaxSize).build();
+  }
+
+  @Override
+  public void onBeforeSave(BeforeSaveEvent<Transaction> event) {
+    Document doc = event.getDocument();
+    if (!compact || doc == null) return;
+    if (doc.get("type") instanceof String type && TYPE_CODES.containsKey(type)) {
+      doc.put("type", TYPE_CODES.get(type));
+    }
+    if (doc.get("category") instanceof String category && CATEGORY_CODES.containsKey(category)) {
+      doc.put("category", CATEGORY_CODES.get(category));
+    }
+    if (doc.get("merchant") instanceof String merchant && doc.get("userId") instanceof String userId) {
+      doc.put("merchant", merchantCode(userId, merchant));
+    }
+  }
+
+  @Override
+  public void onAfterLoad(AfterLoadEvent<Transaction> event) {
+    Document doc = event.getDocument();
+    if (doc != null) decode(doc, true);
+  }
+
+  /**
+   * Decodes a stored transaction document in place. Without {@code fetch} a
+   * merchant missing from the cached dictionary is not looked up and decodes
+   * to null.
+   */
+  void decode(Document doc, boolean fetch) {
+    if (doc.get("type") instanceof Number) {
+      doc.put("type", type(doc.get("type")));
+    }
+    if (doc.get("category") instanceof Number) {
+      doc.put("category", category(doc.get("category")));
+    }
+    if (doc.get("merchant") instanceof Number && doc.get("userId") instanceof String userId) {
+      doc.put("merchant", merchant(userId, doc.get("merchant"), fetch));
+    }
+  }
+
+  /**
+   * Emits {@code doc} once the user's dictionary holds its merchant code, reading
+   * the dictionary with the reactive driver when the cached copy is too short.
+   */
+  Mono<Document> withMerchants(Document doc) {
+    if (!(doc.get("merchant") instanceof Number code) || !(doc.get("userId") instanceof String userId)) {
+      return Mono.just(doc);
+    }
+    Merchants known = merchants.getIfPresent(userId);
+    if (known != null && code.intValue() < known.names().size()) return Mono.just(doc);
+    return reactiveMongoTemplate.findById(userId, MerchantDictionary.class)
+      .doOnNext(dict -> remember(userId, dict.getNames()))
+      .thenReturn(doc);
+  }
+
+  /** A stored type, code or string, as its string. */
+  public String type(Object stored) {
+    return stored instanceof Number code ? decode(TYPES, code) : (String) stored;
+  }
+
+  /** A stored category, code or string, as its string. */
+  public String category(Object stored) {
+    return stored instanceof Number code ? decode(CATEGORIES, code) : (String) stored;
+  }
+
+  /** A stored merchant, dictionary index or string, as its string. */
+  public String merchant(String userId, Object stored) {
+    return merchant(userId, stored, true);
+  }
+
+  private String merchant(String userId, Object stored, boolean fetch) {
+    if (!(stored instanceof Number code)) return (String) stored;
+    int i = code.intValue();
+    Merchants known = merchants.getIfPresent(userId);
+    if (known == null) known = Merchants.of(List.of());
+    if (fetch && i >= known.names().size()) {
+      // Added by another node since this copy was read
+      MerchantDictionary dict = mongoTemplate.findById(userId, MerchantDictionary.class);
+      known = remember(userId, dict != null ? dict.getNames() : List.of());
+    }
+    if (i < 0 || i >= known.names().size()) {
+      log.warn("Unknown merchant code {} for user {}", i, userId);
+      return null;
+    }
+    return known.names().get(i);
+  }
+
+  private int merchantCode(String userId, String merchant) {
+    Merchants known = merchants.getIfPresent(userId);
+    Integer code = known != null ? known.codes().get(merchant) : null;
+    if (code != null) return code;
+
+    // $addToSet appends new names and leaves existing positions alone
+    MerchantDictionary dict = mongoTemplate.findAndModify(
+      TransactionQueries.merchantDictionary(userId),
+      new Update().addToSet("names", merchant),
+      FindAndModifyOptions.options().upsert(true).returnNew(true),
+      MerchantDictionary.class);
+    return remember(userId, dict.getNames()).codes().get(merchant);
+  }
+
+  private Merchants remember(String userId, List<String> names) {
+    // Concurrent readers may bring back different lengths; the longer list is the newer one
+    return merchants.asMap().merge(userId, Merchants.of(names),
+      (a, b) -> a.names().size() >= b.names().size() ? a : b);
+  }
+
+  private static String decode(List<String> table, Number code) {
+    int i = code.intValue() - 1;
+    return i >= 0 && i < table.size() ? table.get(i) : null;
+  }
+
+  private static Map<String, Integer> codes(List<String> table) {
+    Map<String, Integer> codes = new HashMap<>();
+    for (int i = 0; i < table.size(); i++) {
+      codes.put(table.get(i), i + 1);
+    }
+    return codes;
+  }
+}
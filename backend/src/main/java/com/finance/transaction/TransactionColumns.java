@@ -0,0 +1,380 @@
+package com.finance.transaction;
+
+import org.bson.types.ObjectId;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Immutable column-oriented snapshot of one user's transactions dated on or
+ * after {@code windowStart}, newest first by (transactionDate, id) like the
+ * repository queries. Dates are epoch days, ids their 12 ObjectId bytes, and
+ * categories and merchants indexes into per-user dictionaries, so a row costs
+ * about 50 bytes plus its raw message instead of a dozen objects. Changes
+ * produce a new snapshot. The arrays are stored oldest first and shared with
+ * the snapshots built from this one: rows newer than every stored row are
+ * appended into spare capacity past the end, which older snapshots never read.
+ */
+public final class TransactionColumns {
+  private static final int ID_BYTES = 12;
+  private static final byte NO_TYPE = 0;
+  private static final byte DEBIT = 1;
+  private static final byte CREDIT = 2;
+  // Bytes per row across the primitive columns plus the raw message reference
+  private static final int ROW_BYTES = ID_BYTES + 4 + 8 + 1 + 4 + 4 + 8 + 8;
+  private static final int STRING_BYTES = 40;
+  private static final Comparator<Transaction> NEWEST_FIRST = Comparator
+    .comparing(Transaction::getTransactionDate)
+    .thenComparing(t -> new ObjectId(t.getId()))
+    .reversed();
+
+  private final LocalDate windowStart;
+  private final boolean complete;
+  private final int size;
+  // Writer state behind the arrays; only the snapshot that ends where it does may append
+  private final Builder builder;
+  private final byte[] ids;
+  private final int[] epochDays;
+  private final double[] amounts;
+  private final byte[] types;
+  private final int[] categories;
+  private final int[] merchants;
+  private final double[] balances;
+  private final String[] rawMessages;
+  private final String[] categoryNames;
+  private final String[] merchantNames;
+  private final int categoryCount;
+  private final int merchantCount;
+  private final long weight;
+
+  private TransactionColumns(Builder b, boolean complete) {
+    this.windowStart = b.windowStart;
+    this.complete = complete;
+    this.size = b.size;
+    this.builder = b;
+    this.ids = b.ids;
+    this.epochDays = b.epochDays;
+    this.amounts = b.amounts;
+    this.types = b.types;
+    this.categories = b.categories;
+    this.merchants = b.merchants;
+    this.balances = b.balances;
+    this.rawMessages = b.rawMessages;
+    this.categoryNames = b.categoryDict.names;
+    this.merchantNames = b.merchantDict.names;
+    this.categoryCount = b.categoryDict.index.size();
+    this.merchantCount = b.merchantDict.index.size();
+    this.weight = b.weight + (long) (b.epochDays.length - b.size) * ROW_BYTES
+      + b.categoryDict.weight + b.merchantDict.weight;
+  }
+
+  /**
+   * Builds a snapshot from rows already in newest-first order, or returns null
+   * when a row cannot be stored exactly (non-ObjectId id, missing date or an
+   * unexpected type), in which case the user is served from MongoDB.
+   */
+  static TransactionColumns of(LocalDate windowStart, boolean complete, List<Transaction> newestFirst) {
+    Builder b = new Builder(windowStart, newestFirst.size(), null);
+    for (int i = newestFirst.size() - 1; i >= 0; i--) {
+      if (!b.add(newestFirst.get(i))) return null;
+    }
+    return new TransactionColumns(b, complete);
+  }
+
+  /**
+   * A snapshot with the given rows added (ignoring ids already present) and
+   * removed. Rows dated before the window are not stored; adding one means the
+   * snapshot no longer covers the user's full history. Null when a row cannot
+   * be stored.
+   */
+  TransactionColumns with(Collection<Transaction> added, Collection<Transaction> removed) {
+    BitSet drop = new BitSet(size);
+    for (Transaction t : removed) {
+      int i = indexOf(t);
+      if (i >= 0) drop.set(i);
+    }
+    boolean stillComplete = complete;
+    List<Transaction> fresh = new ArrayList<>(added.size());
+    for (Transaction t : added) {
+      if (!encodable(t)) return null;
+      if (t.getTransactionDate().isBefore(windowStart)) {
+        stillComplete = false;
+      } else if (indexOf(t) < 0) {
+        fresh.add(t);
+      }
+    }
+    if (drop.isEmpty() && fresh.isEmpty() && stillComplete == complete) return this;
+
+    fresh.sort(NEWEST_FIRST);
+    if (drop.isEmpty()) {
+      TransactionColumns appended = append(fresh, stillComplete);
+      if (appended != null) return appended;
+    }
+    Builder b = new Builder(windowStart, size - drop.cardinality() + fresh.size(), this);
+    // Oldest first, the order the arrays are stored in
+    int i = size - 1;
+    int j = fresh.size() - 1;
+    while (i >= 0 || j >= 0) {
+      if (i >= 0 && drop.get(i)) {
+        i--;
+      } else if (j < 0 || (i >= 0 && compare(i, fresh.get(j)) > 0)) {
+        b.copy(this, i--);
+      } else if (i >= 0 && compare(i, fresh.get(j)) == 0) {
+        // Added twice (for example by a concurrent load): keep the stored row
+        j--;
+      } else {
+        b.add(fresh.get(j--));
+      }
+    }
+    return new TransactionColumns(b, stillComplete);
+  }
+
+  // Null unless every row is newer than the newest stored one and nothing was appended past this snapshot yet
+  private TransactionColumns append(List<Transaction> newestFirst, boolean complete) {
+    if (size > 0 && !newestFirst.isEmpty() && compare(0, newestFirst.get(newestFirst.size() - 1)) <= 0) {
+      return null;
+    }
+    synchronized (builder) {
+      if (builder.size != size) return null;
+      builder.ensureCapacity(size + newestFirst.size());
+      for (int i = newestFirst.size() - 1; i >= 0; i--) {
+        builder.add(newestFirst.get(i));
+      }
+      return new TransactionColumns(builder, complete);
+    }
+  }
+
+  public LocalDate windowStart() {
+    return windowStart;
+  }
+
+  /** True when the user has no transactions before the window, so the snapshot is the full history. */
+  public boolean complete() {
+    return complete;
+  }
+
+  /** Whether every transaction dated {@code from} or later is in the snapshot; null means unbounded. */
+  public boolean covers(LocalDate from) {
+    return complete || (from != null && !from.isBefore(windowStart));
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Approximate heap footprint in bytes. */
+  public long weight() {
+    return weight;
+  }
+
+  /** First row dated on or before {@code to} (null: 0). */
+  public int startOf(LocalDate to) {
+    return to == null ? 0 : firstBelow(to.toEpochDay() + 1);
+  }
+
+  /** One past the last row dated on or after {@code from} (null: size). */
+  public int endOf(LocalDate from) {
+    return from == null ? size : firstBelow(from.toEpochDay());
+  }
+
+  /** First row strictly after the keyset position in newest-first order; -1 if the id is not an ObjectId. */
+  public int after(TransactionCursor cursor) {
+    if (!ObjectId.isValid(cursor.id())) return -1;
+    byte[] id = new ObjectId(cursor.id()).toByteArray();
+    long day = cursor.transactionDate().toEpochDay();
+    int lo = 0;
+    int hi = size;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (compare(mid, day, id) <= 0) lo = mid + 1;
+      else hi = mid;
+    }
+    return lo;
+  }
+
+  public String categoryName(int id) {
+    return id < 0 ? null : categoryNames[id];
+  }
+
+  public String merchantName(int id) {
+    return id < 0 ? null : merchantNames[id];
+  }
+
+  public Transaction get(String userId, int row) {
+    int p = at(row);
+    return Transaction.builder()
+      .id(new ObjectId(Arrays.copyOfRange(ids, p * ID_BYTES, (p + 1) * ID_BYTES)).toHexString())
+      .userId(userId)
+      .amount(amounts[p])
+      .merchant(merchantName(merchants[p]))
+      .category(categoryName(categories[p]))
+      .type(types[p] == DEBIT ? "debit" : types[p] == CREDIT ? "credit" : null)
+      .transactionDate(LocalDate.ofEpochDay(epochDays[p]))
+      .rawMessage(rawMessages[p])
+      .balance(Double.isNaN(balances[p]) ? null : balances[p])
+      .build();
+  }
+
+  public List<Transaction> get(String userId, int from, int to) {
+    List<Transaction> out = new ArrayList<>(Math.max(0, to - from));
+    for (int i = from; i < to; i++) {
+      out.add(get(userId, i));
+    }
+    return out;
+  }
+
+  static boolean encodable(Transaction t) {
+    return t.getTransactionDate() != null
+      && t.getId() != null && ObjectId.isValid(t.getId())
+      && (t.getType() == null || "debit".equals(t.getType()) || "credit".equals(t.getType()));
+  }
+
+  // First row whose epoch day is below the given one
+  private int firstBelow(long day) {
+    int lo = 0;
+    int hi = size;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (epochDays[at(mid)] >= day) lo = mid + 1;
+      else hi = mid;
+    }
+    return lo;
+  }
+
+  private int indexOf(Transaction t) {
+    if (!encodable(t)) return -1;
+    long day = t.getTransactionDate().toEpochDay();
+    byte[] id = new ObjectId(t.getId()).toByteArray();
+    int lo = 0;
+    int hi = size;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      int c = compare(mid, day, id);
+      if (c == 0) return mid;
+      if (c < 0) lo = mid + 1;
+      else hi = mid;
+    }
+    return -1;
+  }
+
+  private int compare(int row, Transaction t) {
+    return compare(row, t.getTransactionDate().toEpochDay(), new ObjectId(t.getId()).toByteArray());
+  }
+
+  // Negative when the row sorts before (day, id) in newest-first order
+  private int compare(int row, long day, byte[] id) {
+    int p = at(row);
+    if (epochDays[p] != day) return epochDays[p] > day ? -1 : 1;
+    return -Arrays.compareUnsigned(ids, p * ID_BYTES, (p + 1) * ID_BYTES, id, 0, ID_BYTES);
+  }
+
+  // Array index of a newest-first row
+  private int at(int row) {
+    return size - 1 - row;
+  }
+
+  private static final class Dictionary {
+    // Grown by copying, so a snapshot keeps reading the array it was built with
+    String[] names;
+    final Map<String, Integer> index;
+    long weight;
+
+    Dictionary() {
+      this(new String[0], 0);
+    }
+
+    Dictionary(String[] existing, int count) {
+      this.names = Arrays.copyOf(existing, Math.max(count, 4));
+      this.index = new HashMap<>(count * 2);
+      for (int i = 0; i < count; i++) {
+        index.put(names[i], i);
+        weight += STRING_BYTES + names[i].length();
+      }
+    }
+
+    int idOf(String name) {
+      if (name == null) return -1;
+      return index.computeIfAbsent(name, k -> {
+        int id = index.size();
+        if (id == names.length) names = Arrays.copyOf(names, id * 2);
+        names[id] = k;
+        weight += STRING_BYTES + k.length();
+        return id;
+      });
+    }
+  }
+
+  private static final class Builder {
+    final LocalDate windowStart;
+    final Dictionary categoryDict;
+    final Dictionary merchantDict;
+    int size;
+    long weight;
+    byte[] ids;
+    int[] epochDays;
+    double[] amounts;
+    byte[] types;
+    int[] categories;
+    int[] merchants;
+    double[] balances;
+    String[] rawMessages;
+
+    Builder(LocalDate windowStart, int capacity, TransactionColumns base) {
+      this.windowStart = windowStart;
+      this.categoryDict = base != null ? new Dictionary(base.categoryNames, base.categoryCount) : new Dictionary();
+      this.merchantDict = base != null ? new Dictionary(base.merchantNames, base.merchantCount) : new Dictionary();
+      this.ids = new byte[capacity * ID_BYTES];
+      this.epochDays = new int[capacity];
+      this.amounts = new double[capacity];
+      this.types = new byte[capacity];
+      this.categories = new int[capacity];
+      this.merchants = new int[capacity];
+      this.balances = new double[capacity];
+      this.rawMessages = new String[capacity];
+    }
+
+    // Grows by half, so appending one row at a time copies each row a bounded number of times
+    void ensureCapacity(int capacity) {
+      if (capacity <= epochDays.length) return;
+      int grown = Math.max(capacity, epochDays.length + (epochDays.length >> 1) + 16);
+      ids = Arrays.copyOf(ids, grown * ID_BYTES);
+      epochDays = Arrays.copyOf(epochDays, grown);
+      amounts = Arrays.copyOf(amounts, grown);
+      types = Arrays.copyOf(types, grown);
+      categories = Arrays.copyOf(categories, grown);
+      merchants = Arrays.copyOf(merchants, grown);
+      balances = Arrays.copyOf(balances, grown);
+      rawMessages = Arrays.copyOf(rawMessages, grown);
+    }
+
+    boolean add(Transaction t) {
+      if (!encodable(t)) return false;
+      new ObjectId(t.getId()).putToByteBuffer(ByteBuffer.wrap(ids, size * ID_BYTES, ID_BYTES));
+      epochDays[size] = Math.toIntExact(t.getTransactionDate().toEpochDay());
+      amounts[size] = t.getAmount();
+      types[size] = "debit".equals(t.getType()) ? DEBIT : "credit".equals(t.getType()) ? CREDIT : NO_TYPE;
+      categories[size] = categoryDict.idOf(t.getCategory());
+      merchants[size] = merchantDict.idOf(t.getMerchant());
+      balances[size] = t.getBalance() != null ? t.getBalance() : Double.NaN;
+      rawMessages[size] = t.getRawMessage();
+      weight += ROW_BYTES + (t.getRawMessage() != null ? STRING_BYTES + t.getRawMessage().length() : 0);
+      size++;
+      return true;
+    }
+
+    void copy(TransactionColumns from, int row) {
+      int p = from.at(row);
+      System.arraycopy(from.ids, p * ID_BYTES, ids, size * ID_BYTES, ID_BYTES);
+      epochDays[size] = from.epochDays[p];
+      amounts[size] = from.amounts[p];
+      types[size] = from.types[p];
+      categories[size] = from.categories[p];
+      merchants[size] = from.merchants[p];
+      balances[size] = from.balances[p];
+      rawMessages[size] = from.rawMessages[p];
+      weight += ROW_BYTES + (rawMessages[size] != null ? STRING_BYTES + rawMessages[size].length() : 0);
+      size++;
+    }
+  }
+}
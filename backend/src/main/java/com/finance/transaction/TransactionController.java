@@ -1,84 +1,204 @@
 package com.finance.transaction;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.finance.admission.AdmissionControl;
+import com.finance.admission.AdmissionControl.Permit;
+import com.finance.admission.AdmissionControl.Pool;
+import com.finance.admission.AdmissionRejectedException;
 import com.finance.security.AuthUtil;
 import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedReader;
+import java.io.IOException;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/transactions")
 public class TransactionController {
+  private static final Logger log = LoggerFactory.getLogger(TransactionController.class);
   private final TransactionRepository repository;
-  private final TransactionParserService parserService;
+  private final TransactionService transactionService;
+  private final TransactionCache cache;
+  private final DataVersions versions;
+  private final AdmissionControl admission;
   private final AuthUtil authUtil;
-  private final com.finance.insight.InsightService insightService;
+  private final ObjectMapper objectMapper;
+  private final int maxBatchSize;
+  private final int maxPageSize;
 
-  public TransactionController(TransactionRepository repository, TransactionParserService parserService,
-      AuthUtil authUtil, com.finance.insight.InsightService insightService) {
+  public TransactionController(TransactionRepository repository, TransactionService transactionService,
+      TransactionCache cache, DataVersions versions, AdmissionControl admission, AuthUtil authUtil,
+      ObjectMapper objectMapper,
+      @Value("${app.transactions.batch.max-size:1000}") int maxBatchSize,
+      @Value("${app.transactions.page.max-size:500}") int maxPageSize) {
     this.repository = repository;
-    this.parserService = parserService;
+    this.transactionService = transactionService;
+    this.cache = cache;
+    this.versions = versions;
+    this.admission = admission;
     this.authUtil = authUtil;
-    this.insightService = insightService;
+    this.objectMapper = objectMapper;
+    this.maxBatchSize = maxBatchSize;
+    this.maxPageSize = maxPageSize;
   }
 
   public record ProcessRequest(String rawMessage) {
   }
 
+  public record DeleteRequest(List<String> ids, LocalDate from, LocalDate to) {
+  }
+
+  public record DeleteResult(long deleted) {
+  }
+
   @PostMapping("/process")
+  @SuppressWarnings("try")
   public ResponseEntity<?> process(@RequestBody ProcessRequest req, HttpServletRequest request) {
     String userId = authUtil.getUserId(request);
     if (userId == null)
       return ResponseEntity.status(401).body("Unauthorized");
-    Transaction t = parserService.parse(req.rawMessage());
-    t.setUserId(userId);
-    repository.save(t);
+    try (Permit ignored = admission.admit("transactions.process", Pool.WRITES, userId, 1)) {
+      Transaction t = transactionService.ingest(userId, req.rawMessage());
+      return ResponseEntity.ok(t);
+    }
+  }
 
-    // Update insights for the transaction month
-    String month = java.time.YearMonth.from(t.getTransactionDate()).toString();
-    insightService.generateAndUpsert(userId, month);
+  @PostMapping(value = "/process/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+  @SuppressWarnings("try")
+  public ResponseEntity<?> processBatch(@RequestBody List<ProcessRequest> req, HttpServletRequest request) {
+    String userId = authUtil.getUserId(request);
+    if (userId == null)
+      return ResponseEntity.status(401).body("Unauthorized");
+    if (req.size() > maxBatchSize)
+      return ResponseEntity.badRequest().body("Batch exceeds " + maxBatchSize + " messages");
 
-    return ResponseEntity.ok(t);
+    List<String> messages = new ArrayList<>(req.size());
+    for (ProcessRequest r : req) {
+      messages.add(r != null ? r.rawMessage() : null);
+    }
+    // Tokens per message, so a batch is not cheaper than the same messages one by one
+    try (Permit ignored = admission.admit("transactions.batch", Pool.WRITES, userId, messages.size())) {
+      return ResponseEntity.ok(transactionService.ingestBatch(userId, messages));
+    }
+  }
+
+  @PostMapping(value = "/process/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+  @SuppressWarnings("try")
+  public ResponseEntity<?> processBatchNdjson(HttpServletRequest request) throws IOException {
+    String userId = authUtil.getUserId(request);
+    if (userId == null)
+      return ResponseEntity.status(401).body("Unauthorized");
+
+    // Each line is either {"rawMessage": "..."} or a bare JSON string
+    List<String> messages = new ArrayList<>();
+    BufferedReader reader = request.getReader();
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.isBlank())
+        continue;
+      if (messages.size() == maxBatchSize)
+        return ResponseEntity.badRequest().body("Batch exceeds " + maxBatchSize + " messages");
+      String message = null;
+      try {
+        JsonNode node = objectMapper.readTree(line);
+        message = node.isTextual() ? node.asText() : node.path("rawMessage").asText(null);
+      } catch (IOException ignored) {
+        // left null so the item is reported as failed at its index
+      }
+      messages.add(message);
+    }
+    try (Permit ignored = admission.admit("transactions.batch", Pool.WRITES, userId, messages.size())) {
+      return ResponseEntity.ok(transactionService.ingestBatch(userId, messages));
+    }
   }
 
   @GetMapping
   public ResponseEntity<?> list(
       @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
       @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
-      HttpServletRequest request) {
+      @RequestParam(name = "limit", required = false) Integer limit,
+      @RequestParam(name = "cursor", required = false) String cursor,
+      @RequestParam(name = "stream", defaultValue = "false") boolean stream,
+      HttpServletRequest request, ServletWebRequest webRequest) {
     try {
-      System.out.println("TransactionController: list called");
       String userId = authUtil.getUserId(request);
-      System.out.println("TransactionController: userId = " + userId);
 
       if (userId == null) {
-        System.out.println("TransactionController: userId is null, returning 401");
         return ResponseEntity.status(401).body("Unauthorized - no user ID");
       }
 
-      System.out.println("TransactionController: Querying for user " + userId + " from " + from + " to " + to);
+      // Unchanged since the client's copy: answer 304 before touching cache or Mongo
+      if (versions.checkNotModified(webRequest, userId, null)) {
+        return null;
+      }
+
+      log.debug("Listing transactions for user {} from {} to {}", userId, from, to);
 
-      List<Transaction> result;
-      if (from != null && to != null) {
-        result = repository.findByUserIdAndTransactionDateBetweenOrderByTransactionDateDesc(userId, from, to);
-      } else {
-        result = repository.findByUserIdOrderByTransactionDateDesc(userId);
+      if (limit != null) {
+        if (limit < 1 || limit > maxPageSize)
+          return ResponseEntity.badRequest().body("limit must be between 1 and " + maxPageSize);
+        TransactionCursor after;
+        try {
+          after = cursor != null ? TransactionCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+          return ResponseEntity.badRequest().body("Invalid cursor");
+        }
+        // Fetch one extra row to learn whether another page exists
+        List<Transaction> rows = cache.findPage(userId, from, to, after, limit + 1)
+          .orElseGet(() -> repository.findPage(userId, from, to, after, limit + 1));
+        boolean more = rows.size() > limit;
+        List<Transaction> items = more ? rows.subList(0, limit) : rows;
+        String next = more ? TransactionCursor.of(items.get(items.size() - 1)).encode() : null;
+        return ResponseEntity.ok(new TransactionPage(items, next));
       }
 
-      System.out.println("TransactionController: Found " + result.size() + " transactions");
+      if (stream) {
+        StreamingResponseBody body = out -> {
+          try (Stream<Transaction> txs = repository.streamByUserId(userId, from, to);
+              JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            // Spring flushes and closes the response stream itself
+            gen.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            gen.writeStartArray();
+            Iterator<Transaction> it = txs.iterator();
+            while (it.hasNext()) {
+              gen.writeObject(it.next());
+            }
+            gen.writeEndArray();
+          }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+      }
+
+      List<Transaction> result = cache.find(userId, from, to)
+        .orElseGet(() -> repository.findRange(userId, from, to));
+
+      log.debug("Found {} transactions", result.size());
       return ResponseEntity.ok(result);
 
     } catch (Exception e) {
-      System.out.println("TransactionController: ERROR - " + e.getClass().getName() + ": " + e.getMessage());
-      e.printStackTrace();
+      log.error("Failed to list transactions", e);
       return ResponseEntity.status(500).body("Error: " + e.getMessage());
     }
   }
 
   @PostMapping("/manual")
+  @SuppressWarnings("try")
   public ResponseEntity<?> createManual(@RequestBody ManualTransactionRequest req, HttpServletRequest request) {
     String userId = authUtil.getUserId(request);
     if (userId == null)
@@ -100,23 +220,21 @@ public class TransactionController {
         .balance(req.balance())
         .build();
 
-    repository.save(t);
-
-    // Update insights for the transaction month
-    String month = java.time.YearMonth.from(t.getTransactionDate()).toString();
-    insightService.generateAndUpsert(userId, month);
-
+    try (Permit ignored = admission.admit("transactions.manual", Pool.WRITES, userId, 1)) {
+      transactionService.create(t);
+    }
     return ResponseEntity.ok(t);
   }
 
   @DeleteMapping("/{id}")
+  @SuppressWarnings("try")
   public ResponseEntity<?> delete(@PathVariable("id") String id, HttpServletRequest request) {
-    try {
-      String userId = authUtil.getUserId(request);
-      if (userId == null) {
-        return ResponseEntity.status(401).body("Unauthorized");
-      }
+    String userId = authUtil.getUserId(request);
+    if (userId == null) {
+      return ResponseEntity.status(401).body("Unauthorized");
+    }
 
+    try (Permit ignored = admission.admit("transactions.delete", Pool.WRITES, userId, 1)) {
       // Find the transaction
       var transaction = repository.findById(id);
       if (transaction.isEmpty()) {
@@ -128,21 +246,44 @@ public class TransactionController {
         return ResponseEntity.status(403).body("Forbidden - not your transaction");
       }
 
-      // Get the month before deleting for insight update
-      String month = java.time.YearMonth.from(transaction.get().getTransactionDate()).toString();
-
-      // Delete the transaction
-      repository.deleteById(id);
-
-      // Update insights for the transaction month
-      insightService.generateAndUpsert(userId, month);
+      // Delete the transaction and take it back out of its month's insight
+      transactionService.delete(transaction.get());
 
       return ResponseEntity.ok().body("Transaction deleted successfully");
 
+    } catch (AdmissionRejectedException e) {
+      throw e;
     } catch (Exception e) {
-      System.out.println("TransactionController: DELETE ERROR - " + e.getClass().getName() + ": " + e.getMessage());
-      e.printStackTrace();
+      log.error("Failed to delete transaction {}", id, e);
       return ResponseEntity.status(500).body("Error: " + e.getMessage());
     }
   }
+
+  @DeleteMapping
+  @SuppressWarnings("try")
+  public ResponseEntity<?> deleteMany(@RequestBody DeleteRequest req, HttpServletRequest request) {
+    String userId = authUtil.getUserId(request);
+    if (userId == null)
+      return ResponseEntity.status(401).body("Unauthorized");
+
+    boolean byIds = req.ids() != null && !req.ids().isEmpty();
+    boolean byRange = req.from() != null || req.to() != null;
+    if (byIds == byRange)
+      return ResponseEntity.badRequest().body("Provide either ids or a from/to date range");
+    if (byIds && req.ids().size() > maxBatchSize)
+      return ResponseEntity.badRequest().body("Cannot delete more than " + maxBatchSize + " ids at once");
+    if (byRange && req.from() != null && req.to() != null && req.from().isAfter(req.to()))
+      return ResponseEntity.badRequest().body("from must not be after to");
+
+    // Each month a range delete touches has to be rebuilt, so that is what it is charged
+    List<YearMonth> months = byRange ? transactionService.monthsSpanned(userId, req.from(), req.to()) : List.of();
+
+    // The userId filter in the delete itself is the ownership check
+    try (Permit ignored = admission.admit("transactions.delete", Pool.WRITES, userId, byRange ? months.size() : 1)) {
+      long deleted = byIds
+        ? transactionService.deleteAll(userId, req.ids())
+        : transactionService.deleteRange(userId, req.from(), req.to(), months);
+      return ResponseEntity.ok(new DeleteResult(deleted));
+    }
+  }
 }
@@ -0,0 +1,32 @@
+package com.finance.transaction;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/** Opaque keyset position: the (transactionDate, id) of the last item of a page. */
+public record TransactionCursor(LocalDate transactionDate, String id) {
+
+  public static TransactionCursor of(Transaction t) {
+    return new TransactionCursor(t.getTransactionDate(), t.getId());
+  }
+
+  public String encode() {
+    String raw = transactionDate + "|" + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static TransactionCursor decode(String cursor) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      int sep = raw.indexOf('|');
+      if (sep < 0 || sep == raw.length() - 1) {
+        throw new IllegalArgumentException("Invalid cursor");
+      }
+      return new TransactionCursor(LocalDate.parse(raw.substring(0, sep)), raw.substring(sep + 1));
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Invalid cursor");
+    }
+  }
+}
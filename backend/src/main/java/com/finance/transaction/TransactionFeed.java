@@ -0,0 +1,75 @@
+package com.finance.transaction;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process fan-out of newly stored transactions to open feed connections.
+ * Each user with at least one listener has a multicast sink; every listener
+ * gets its own bounded buffer, and a listener that falls further behind loses
+ * its oldest undelivered transactions instead of holding memory or slowing
+ * down the writers.
+ */
+@Component
+public class TransactionFeed {
+  private static final class Channel {
+    final Sinks.Many<Transaction> sink = Sinks.many().multicast().directBestEffort();
+    int listeners;
+  }
+
+  private final ConcurrentHashMap<String, Channel> channels = new ConcurrentHashMap<>();
+  private final AtomicInteger listeners = new AtomicInteger();
+  private final int bufferSize;
+  private final Counter droppedCounter;
+
+  public TransactionFeed(MeterRegistry registry,
+      @Value("${app.transactions.feed.buffer-size:256}") int bufferSize) {
+    this.bufferSize = bufferSize;
+    Gauge.builder("finance.transactions.feed.listeners", listeners, AtomicInteger::get)
+      .description("Open live transaction feed connections")
+      .register(registry);
+    this.droppedCounter = Counter.builder("finance.transactions.feed.dropped")
+      .description("Transactions dropped for a listener whose buffer was full")
+      .register(registry);
+  }
+
+  /** Pushes stored transactions to the user's listeners; a no-op when nobody listens. */
+  public void publish(String userId, Collection<Transaction> txs) {
+    Channel channel = channels.get(userId);
+    if (channel == null) return;
+    // A sink takes one emitter at a time; handing off to the listeners' buffers is cheap
+    synchronized (channel) {
+      for (Transaction t : txs) {
+        channel.sink.tryEmitNext(t);
+      }
+    }
+  }
+
+  /** Transactions stored for the user from the moment of subscription on; never completes. */
+  public Flux<Transaction> listen(String userId) {
+    return Flux.defer(() -> {
+      Channel channel = channels.compute(userId, (k, c) -> {
+        if (c == null) c = new Channel();
+        c.listeners++;
+        return c;
+      });
+      listeners.incrementAndGet();
+      return channel.sink.asFlux()
+        .onBackpressureBuffer(bufferSize, t -> droppedCounter.increment(), BufferOverflowStrategy.DROP_OLDEST)
+        .doFinally(signal -> {
+          listeners.decrementAndGet();
+          channels.computeIfPresent(userId, (k, c) -> --c.listeners == 0 ? null : c);
+        });
+    });
+  }
+}
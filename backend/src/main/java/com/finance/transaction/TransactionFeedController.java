@@ -0,0 +1,92 @@
+package com.finance.transaction;
+
+import com.finance.security.AuthUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * Streaming read API over the reactive repository. The response is written as
+ * the client consumes it (Spring MVC requests one element at a time), and an
+ * open connection holds no request thread while it waits for the cursor or
+ * for live transactions.
+ */
+@RestController
+@RequestMapping("/api/transactions/feed")
+public class TransactionFeedController {
+  private final ReactiveTransactionRepository repository;
+  private final TransactionFeed feed;
+  private final AuthUtil authUtil;
+  private final Duration heartbeat;
+
+  public TransactionFeedController(ReactiveTransactionRepository repository, TransactionFeed feed,
+      AuthUtil authUtil, @Value("${app.transactions.feed.heartbeat:15s}") Duration heartbeat) {
+    this.repository = repository;
+    this.feed = feed;
+    this.authUtil = authUtil;
+    this.heartbeat = heartbeat;
+  }
+
+  @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<Flux<Transaction>> ndjson(
+      @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+      @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+      @RequestParam(name = "live", defaultValue = "false") boolean live,
+      HttpServletRequest request) {
+    String userId = authUtil.getUserId(request);
+    if (userId == null)
+      return ResponseEntity.status(401).build();
+    return ResponseEntity.ok(transactions(userId, from, to, live));
+  }
+
+  @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public ResponseEntity<Flux<ServerSentEvent<Transaction>>> events(
+      @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+      @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+      @RequestParam(name = "live", defaultValue = "false") boolean live,
+      HttpServletRequest request) {
+    String userId = authUtil.getUserId(request);
+    if (userId == null)
+      return ResponseEntity.status(401).build();
+
+    Flux<ServerSentEvent<Transaction>> events = transactions(userId, from, to, live)
+      .map(t -> ServerSentEvent.builder(t).id(t.getId()).event("transaction").build());
+    if (live) {
+      // Comment lines keep idle connections open through proxies
+      events = events.mergeWith(Flux.interval(heartbeat)
+        .onBackpressureDrop()
+        .map(i -> ServerSentEvent.<Transaction>builder().comment("keep-alive").build()));
+    }
+    return ResponseEntity.ok(events);
+  }
+
+  /**
+   * Stored transactions oldest first, then with {@code live} every transaction
+   * stored afterwards within the range. The live subscription is opened together
+   * with the history query and buffered until the history is done, so nothing is
+   * lost at the switch-over; a transaction stored while the history is being
+   * read can appear twice (same id).
+   */
+  private Flux<Transaction> transactions(String userId, LocalDate from, LocalDate to, boolean live) {
+    Flux<Transaction> history = repository.streamByUserId(userId, from, to);
+    if (!live) return history;
+    Flux<Transaction> updates = feed.listen(userId).filter(t -> inRange(t.getTransactionDate(), from, to));
+    return Flux.mergeSequential(history, updates);
+  }
+
+  private static boolean inRange(LocalDate date, LocalDate from, LocalDate to) {
+    if (date == null) return false;
+    return (from == null || !date.isBefore(from)) && (to == null || !date.isAfter(to));
+  }
+}
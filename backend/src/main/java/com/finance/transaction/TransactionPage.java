@@ -0,0 +1,8 @@
+package com.finance.transaction;
+
+import java.util.List;
+
+public record TransactionPage(
+        List<Transaction> items,
+        String nextCursor) {
+}
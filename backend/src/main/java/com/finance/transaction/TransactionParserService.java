@@ -1,19 +1,32 @@
 package com.finance.transaction;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Service
 public class TransactionParserService {
   private static final Pattern AMOUNT_PATTERN = Pattern.compile("(?:rs\\.?|inr|₹)\\s*([0-9,]+\\.?[0-9]*)|([0-9,]+\\.?[0-9]*)\\s*(?:rs\\.?|inr|₹)", Pattern.CASE_INSENSITIVE);
-  private static final Pattern DATE_PATTERN = Pattern.compile("\\b(\\d{1,2}[/-]\\d{1,2}[/-]\\d{2,4})\\b|\\b(\\d{4}[/-]\\d{1,2}[/-]\\d{1,2})\\b");
+  // Explicit ASCII \w bounds: \b only went ASCII-only in JDK 19, so it reads differently on 17 and 21
+  private static final Pattern DATE_PATTERN = Pattern.compile("(?<!\\w)(\\d{1,2}[/-]\\d{1,2}[/-]\\d{2,4})(?!\\w)|(?<!\\w)(\\d{4}[/-]\\d{1,2}[/-]\\d{1,2})(?!\\w)");
   private static final Pattern MERCHANT_PATTERN = Pattern.compile("(?:at|to|from)\\s+([A-Z][A-Za-z0-9\\s&]+?)(?:\\s+on|\\.|,|$)", Pattern.CASE_INSENSITIVE);
   private static final Pattern BALANCE_PATTERN = Pattern.compile("(?:balance|bal|available)\\s*:?\\s*(?:rs\\.?|inr|₹)?\\s*([0-9,]+\\.?[0-9]*)", Pattern.CASE_INSENSITIVE);
+  private static final Pattern YEAR_FIRST_DATE = Pattern.compile("\\d{4}-\\d{1,2}-\\d{1,2}");
+  private static final DateTimeFormatter YEAR_FIRST_FORMAT = DateTimeFormatter.ofPattern("yyyy-M-d");
+  private static final DateTimeFormatter DAY_FIRST_FORMAT = DateTimeFormatter.ofPattern("d-M-yy");
 
   private static final String[][] CATEGORY_KEYWORDS = new String[][]{
     {"Food & Dining", "swiggy","zomato","uber eats","food","restaurant","cafe","dominos","pizza","burger"},
@@ -28,11 +41,208 @@ public class TransactionParserService {
     {"Income", "salary","credited","credit"}
   };
 
+  // Compiled once: payload is the category's row, so the lowest hit keeps the first-category-wins order
+  private static final KeywordMatcher CATEGORY_MATCHER = buildCategoryMatcher();
+  private static final KeywordMatcher CREDIT_MATCHER = KeywordMatcher.builder().add("credit", 0).build();
+
+  /**
+   * LEAN scans amounts, dates and words by hand without copying the message;
+   * REGEX is the original pattern-based implementation. Both yield the same fields.
+   * TEMPLATE learns each SMS layout from LEAN parses and afterwards reads amount,
+   * date, merchant and balance by position, falling back to LEAN when it can't.
+   */
+  public enum Mode { LEAN, REGEX, TEMPLATE }
+
+  private final Mode mode;
+  private final SmsTemplates templates;
+  private final double verifyRate;
+  private final Counter templateHitCounter;
+  private final Counter templateMissCounter;
+  private final Counter templateLearnedCounter;
+  private final Counter templateMismatchCounter;
+  private final Timer parseTimer;
+  private final Counter parsedCounter;
+  private final Counter failedCounter;
+  private final Counter unknownMerchantCounter;
+  private final Counter uncategorizedCounter;
+
+  public TransactionParserService(String mode, MeterRegistry registry) {
+    this(mode, registry, 10_000, 2, 0.01);
+  }
+
+  @Autowired
+  public TransactionParserService(@Value("${app.parser.mode:lean}") String mode, MeterRegistry registry,
+      @Value("${app.parser.templates.max-size:10000}") long templatesMaxSize,
+      @Value("${app.parser.templates.confirmations:2}") int confirmations,
+      @Value("${app.parser.templates.verify-rate:0.01}") double verifyRate) {
+    this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+    String modeTag = this.mode.name().toLowerCase(Locale.ROOT);
+    this.parseTimer = Timer.builder("finance.parser.parse")
+      .description("Time to parse one SMS into a transaction")
+      .tag("mode", modeTag)
+      .publishPercentileHistogram()
+      .register(registry);
+    this.parsedCounter = outcomeCounter(registry, modeTag, "parsed");
+    this.failedCounter = outcomeCounter(registry, modeTag, "failed");
+    this.unknownMerchantCounter = outcomeCounter(registry, modeTag, "unknown_merchant");
+    this.uncategorizedCounter = outcomeCounter(registry, modeTag, "uncategorized");
+
+    this.templates = this.mode == Mode.TEMPLATE ? new SmsTemplates(templatesMaxSize, confirmations) : null;
+    this.verifyRate = verifyRate;
+    if (templates != null) {
+      CaffeineCacheMetrics.monitor(registry, templates.cache(), "sms_templates");
+    }
+    this.templateHitCounter = templateCounter(registry, "hit");
+    this.templateMissCounter = templateCounter(registry, "miss");
+    this.templateLearnedCounter = templateCounter(registry, "learned");
+    this.templateMismatchCounter = templateCounter(registry, "mismatch");
+  }
+
   public Transaction parse(String rawMessage) {
     if (rawMessage == null || rawMessage.isBlank()) {
       throw new IllegalArgumentException("rawMessage is required");
     }
+    long start = System.nanoTime();
+    try {
+      Transaction t = switch (mode) {
+        case LEAN -> parseLean(rawMessage, null);
+        case REGEX -> parseWithRegex(rawMessage);
+        case TEMPLATE -> parseWithTemplate(rawMessage);
+      };
+      parsedCounter.increment();
+      if ("Unknown".equals(t.getMerchant())) unknownMerchantCounter.increment();
+      if ("Uncategorized".equals(t.getCategory())) uncategorizedCounter.increment();
+      return t;
+    } catch (RuntimeException e) {
+      failedCounter.increment();
+      throw e;
+    } finally {
+      parseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  // "parsed" counts every successful parse; the other outcomes are subsets of it except "failed"
+  private static Counter outcomeCounter(MeterRegistry registry, String modeTag, String outcome) {
+    return Counter.builder("finance.parser.outcomes")
+      .description("SMS parse results by outcome")
+      .tag("mode", modeTag)
+      .tag("outcome", outcome)
+      .register(registry);
+  }
+
+  // hit: read by position; miss: parsed in full and learned from; mismatch: a verified hit read wrong fields
+  private static Counter templateCounter(MeterRegistry registry, String outcome) {
+    return Counter.builder("finance.parser.templates")
+      .description("Template-mode parses by outcome")
+      .tag("outcome", outcome)
+      .register(registry);
+  }
+
+  private Transaction parseWithTemplate(String rawMessage) {
+    SmsTemplates.Shape shape = SmsTemplates.shape(rawMessage);
+    SmsTemplates.Fields fields = templates.extract(shape, rawMessage);
+    if (fields != null) {
+      Transaction t = Transaction.builder()
+        .amount(fields.amount())
+        .merchant(fields.merchant())
+        .category(category(rawMessage))
+        .type(type(rawMessage))
+        .transactionDate(fields.date())
+        .rawMessage(rawMessage)
+        .balance(fields.balance())
+        .build();
+      // A sample is parsed in full as well, so a template that reads the wrong fields is dropped
+      if (verifyRate > 0 && ThreadLocalRandom.current().nextDouble() < verifyRate) {
+        Transaction full = parseLean(rawMessage, null);
+        if (!sameFields(t, full)) {
+          templateMismatchCounter.increment();
+          templates.reject(shape);
+          return full;
+        }
+      }
+      templateHitCounter.increment();
+      return t;
+    }
+
+    templateMissCounter.increment();
+    int[] positions = new int[3];
+    Transaction full = parseLean(rawMessage, positions);
+    if (templates.learn(shape, rawMessage, full, positions[0], positions[1], positions[2])) {
+      templateLearnedCounter.increment();
+    }
+    return full;
+  }
+
+  private static boolean sameFields(Transaction a, Transaction b) {
+    return Double.compare(a.getAmount(), b.getAmount()) == 0
+      && a.getMerchant().equals(b.getMerchant())
+      && a.getTransactionDate().equals(b.getTransactionDate())
+      && Objects.equals(a.getBalance(), b.getBalance());
+  }
 
+  private static String type(String rawMessage) {
+    return CREDIT_MATCHER.firstMatch(rawMessage) != KeywordMatcher.NO_MATCH ? "credit" : "debit";
+  }
+
+  private static String category(String rawMessage) {
+    int categoryRow = CATEGORY_MATCHER.firstMatch(rawMessage);
+    return categoryRow == KeywordMatcher.NO_MATCH ? "Uncategorized" : CATEGORY_KEYWORDS[categoryRow][0];
+  }
+
+  /**
+   * With {@code positions}, also reports the merchant match's trimmed bounds and
+   * the balance number's start (each -1 when absent) for template learning.
+   */
+  private Transaction parseLean(String rawMessage, int[] positions) {
+    double amount = SmsScanner.amount(rawMessage);
+
+    String type = type(rawMessage);
+
+    String merchant = "Unknown";
+    int merchantFrom = -1;
+    int merchantTo = -1;
+    Matcher merchantM = MERCHANT_PATTERN.matcher(rawMessage);
+    if (merchantM.find() && merchantM.group(1) != null) {
+      merchant = merchantM.group(1).trim();
+      merchantFrom = merchantM.start(1);
+      while (SmsScanner.isSpace(rawMessage.charAt(merchantFrom))) merchantFrom++;
+      merchantTo = merchantFrom + merchant.length();
+    } else {
+      int start = SmsScanner.capitalisedWordStart(rawMessage);
+      if (start >= 0) merchant = rawMessage.substring(start, SmsScanner.wordEnd(rawMessage, start));
+    }
+
+    String category = category(rawMessage);
+
+    LocalDate date = SmsScanner.date(rawMessage);
+    if (date == null) date = LocalDate.now();
+
+    Double balance = null;
+    int balanceFrom = -1;
+    Matcher balM = BALANCE_PATTERN.matcher(rawMessage);
+    if (balM.find()) {
+      balance = SmsScanner.number(rawMessage, balM.start(1), balM.end(1));
+      balanceFrom = balM.start(1);
+    }
+
+    if (positions != null) {
+      positions[0] = merchantFrom;
+      positions[1] = merchantTo;
+      positions[2] = balanceFrom;
+    }
+
+    return Transaction.builder()
+      .amount(amount)
+      .merchant(merchant)
+      .category(category)
+      .type(type)
+      .transactionDate(date)
+      .rawMessage(rawMessage)
+      .balance(balance)
+      .build();
+  }
+
+  private Transaction parseWithRegex(String rawMessage) {
     String lower = rawMessage.toLowerCase(Locale.ROOT);
 
     Matcher amountM = AMOUNT_PATTERN.matcher(rawMessage);
@@ -58,14 +268,8 @@ public class TransactionParserService {
       }
     }
 
-    String category = "Uncategorized";
-    for (String[] cat : CATEGORY_KEYWORDS) {
-      String name = cat[0];
-      for (int i = 1; i < cat.length; i++) {
-        if (lower.contains(cat[i])) { category = name; break; }
-      }
-      if (!"Uncategorized".equals(category)) break;
-    }
+    int categoryRow = CATEGORY_MATCHER.firstMatch(rawMessage);
+    String category = categoryRow == KeywordMatcher.NO_MATCH ? "Uncategorized" : CATEGORY_KEYWORDS[categoryRow][0];
 
     LocalDate date = LocalDate.now();
     Matcher dateM = DATE_PATTERN.matcher(rawMessage);
@@ -73,10 +277,10 @@ public class TransactionParserService {
       String ds = dateM.group(0);
       try {
         ds = ds.replace('/', '-');
-        if (ds.matches("\\d{4}-\\d{1,2}-\\d{1,2}")) {
-          date = LocalDate.parse(ds, DateTimeFormatter.ofPattern("yyyy-M-d"));
+        if (YEAR_FIRST_DATE.matcher(ds).matches()) {
+          date = LocalDate.parse(ds, YEAR_FIRST_FORMAT);
         } else {
-          date = LocalDate.parse(ds, DateTimeFormatter.ofPattern("d-M-yy"));
+          date = LocalDate.parse(ds, DAY_FIRST_FORMAT);
         }
       } catch (Exception ignored) {}
     }
@@ -97,4 +301,14 @@ public class TransactionParserService {
       .balance(balance)
       .build();
   }
+
+  private static KeywordMatcher buildCategoryMatcher() {
+    KeywordMatcher.Builder builder = KeywordMatcher.builder();
+    for (int row = 0; row < CATEGORY_KEYWORDS.length; row++) {
+      for (int i = 1; i < CATEGORY_KEYWORDS[row].length; i++) {
+        builder.add(CATEGORY_KEYWORDS[row][i], row);
+      }
+    }
+    return builder.build();
+  }
 }
@@ -0,0 +1,75 @@
+package com.finance.transaction;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDate;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * The queries behind the custom transaction repository methods and the merchant
+ * dictionary, shared with the startup index check so the plans it explains are
+ * the ones that run.
+ */
+public final class TransactionQueries {
+  private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("transactionDate"), Sort.Order.desc("id"));
+  private static final Sort OLDEST_FIRST = Sort.by(Sort.Order.asc("transactionDate"), Sort.Order.asc("id"));
+  // Read as plain documents, where "id" is not mapped to "_id"
+  private static final Sort FEED_ORDER = Sort.by(Sort.Order.asc("transactionDate"), Sort.Order.asc("_id"));
+
+  private TransactionQueries() {
+  }
+
+  /** The user's transactions in the inclusive, optional range, newest first. */
+  public static Query range(String userId, LocalDate from, LocalDate to) {
+    return new Query(userAndRange(userId, from, to)).with(NEWEST_FIRST);
+  }
+
+  /** The same range without an order, as it is deleted. */
+  public static Query unordered(String userId, LocalDate from, LocalDate to) {
+    return new Query(userAndRange(userId, from, to));
+  }
+
+  /** The keyset page after {@code after} (null for the first page) in the {@link #range} ordering. */
+  public static Query page(String userId, LocalDate from, LocalDate to, TransactionCursor after, int limit) {
+    Criteria criteria = userAndRange(userId, from, to);
+    if (after != null) {
+      Object id = ObjectId.isValid(after.id()) ? new ObjectId(after.id()) : after.id();
+      criteria = new Criteria().andOperator(criteria, new Criteria().orOperator(
+        where("transactionDate").lt(after.transactionDate()),
+        where("transactionDate").is(after.transactionDate()).and("id").lt(id)));
+    }
+    return new Query(criteria).with(NEWEST_FIRST).limit(limit);
+  }
+
+  /** The date of the newest or oldest transaction in the range. */
+  public static Query firstDate(String userId, LocalDate from, LocalDate to, boolean newest) {
+    Query query = new Query(userAndRange(userId, from, to)).with(newest ? NEWEST_FIRST : OLDEST_FIRST).limit(1);
+    query.fields().include("transactionDate");
+    return query;
+  }
+
+  /** The range oldest first, for the streaming feed. */
+  public static Query feed(String userId, LocalDate from, LocalDate to) {
+    return new Query(userAndRange(userId, from, to)).with(FEED_ORDER);
+  }
+
+  public static Query merchantDictionary(String userId) {
+    return new Query(where("_id").is(userId));
+  }
+
+  static Criteria userAndRange(String userId, LocalDate from, LocalDate to) {
+    Criteria criteria = where("userId").is(userId);
+    if (from != null && to != null) {
+      criteria = criteria.and("transactionDate").gte(from).lte(to);
+    } else if (from != null) {
+      criteria = criteria.and("transactionDate").gte(from);
+    } else if (to != null) {
+      criteria = criteria.and("transactionDate").lte(to);
+    }
+    return criteria;
+  }
+}
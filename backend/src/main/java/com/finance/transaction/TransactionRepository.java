@@ -3,15 +3,22 @@ package com.finance.transaction;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface TransactionRepository extends MongoRepository<Transaction, String> {
-  List<Transaction> findByUserIdAndTransactionDateBetweenOrderByTransactionDateDesc(String userId, LocalDate from,
-      LocalDate to);
-
-  List<Transaction> findByUserIdOrderByTransactionDateDesc(String userId);
-
+public interface TransactionRepository extends MongoRepository<Transaction, String>, TransactionRepositoryCustom {
   List<Transaction> findByUserId(String userId);
 
+  boolean existsByUserIdAndTransactionDateBefore(String userId, LocalDate date);
+
   void deleteByUserId(String userId);
+
+  List<Transaction> findByUserIdAndIdIn(String userId, Collection<String> ids);
+
+  long deleteByUserIdAndIdIn(String userId, Collection<String> ids);
+
+  Optional<Transaction> findByContentHash(String contentHash);
+
+  List<Transaction> findByContentHashIn(Collection<String> contentHashes);
 }
@@ -0,0 +1,37 @@
+package com.finance.transaction;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public interface TransactionRepositoryCustom {
+  /**
+   * One keyset page of a user's transactions, newest first, ordered by
+   * (transactionDate, id) descending. {@code from}/{@code to} are inclusive and optional.
+   */
+  List<Transaction> findPage(String userId, LocalDate from, LocalDate to, TransactionCursor after, int limit);
+
+  /** Every transaction of the user in the range, in the same ordering. */
+  List<Transaction> findRange(String userId, LocalDate from, LocalDate to);
+
+  /** Streams the same ordering straight off the Mongo cursor; the caller must close the stream. */
+  Stream<Transaction> streamByUserId(String userId, LocalDate from, LocalDate to);
+
+  /**
+   * Every month from the oldest to the newest of the user's transactions in the
+   * inclusive, optional range; empty when there are none. Two indexed lookups.
+   */
+  List<YearMonth> monthsSpanned(String userId, LocalDate from, LocalDate to);
+
+  /**
+   * Inserts the transactions with one unordered bulk. Rows the unique content
+   * hash index rejects are skipped; their positions in {@code txs} are returned.
+   * Ids must be assigned by the caller.
+   */
+  Set<Integer> insertSkippingDuplicates(List<Transaction> txs);
+
+  /** Deletes the user's transactions in the inclusive, optional range with one deleteMany. */
+  long deleteRange(String userId, LocalDate from, LocalDate to);
+}
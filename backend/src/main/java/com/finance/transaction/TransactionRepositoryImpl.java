@@ -0,0 +1,76 @@
+package com.finance.transaction;
+
+import com.mongodb.bulk.BulkWriteError;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+class TransactionRepositoryImpl implements TransactionRepositoryCustom {
+  private static final int DUPLICATE_KEY = 11000;
+
+  private final MongoTemplate mongoTemplate;
+
+  TransactionRepositoryImpl(MongoTemplate mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  @Override
+  public List<Transaction> findPage(String userId, LocalDate from, LocalDate to, TransactionCursor after, int limit) {
+    return mongoTemplate.find(TransactionQueries.page(userId, from, to, after, limit), Transaction.class);
+  }
+
+  @Override
+  public List<Transaction> findRange(String userId, LocalDate from, LocalDate to) {
+    return mongoTemplate.find(TransactionQueries.range(userId, from, to), Transaction.class);
+  }
+
+  @Override
+  public Stream<Transaction> streamByUserId(String userId, LocalDate from, LocalDate to) {
+    return mongoTemplate.stream(TransactionQueries.range(userId, from, to), Transaction.class);
+  }
+
+  @Override
+  public List<YearMonth> monthsSpanned(String userId, LocalDate from, LocalDate to) {
+    LocalDate oldest = firstDate(userId, from, to, false);
+    LocalDate newest = firstDate(userId, from, to, true);
+    List<YearMonth> months = new ArrayList<>();
+    if (oldest == null || newest == null) return months;
+    for (YearMonth m = YearMonth.from(oldest); !m.isAfter(YearMonth.from(newest)); m = m.plusMonths(1)) {
+      months.add(m);
+    }
+    return months;
+  }
+
+  @Override
+  public Set<Integer> insertSkippingDuplicates(List<Transaction> txs) {
+    Set<Integer> duplicates = new HashSet<>();
+    if (txs.isEmpty()) return duplicates;
+    try {
+      mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Transaction.class).insert(txs).execute();
+    } catch (BulkOperationException e) {
+      for (BulkWriteError error : e.getErrors()) {
+        if (error.getCode() != DUPLICATE_KEY) throw e;
+        duplicates.add(error.getIndex());
+      }
+    }
+    return duplicates;
+  }
+
+  @Override
+  public long deleteRange(String userId, LocalDate from, LocalDate to) {
+    return mongoTemplate.remove(TransactionQueries.unordered(userId, from, to), Transaction.class).getDeletedCount();
+  }
+
+  private LocalDate firstDate(String userId, LocalDate from, LocalDate to, boolean newest) {
+    Transaction first = mongoTemplate.findOne(TransactionQueries.firstDate(userId, from, to, newest), Transaction.class);
+    return first != null ? first.getTransactionDate() : null;
+  }
+}
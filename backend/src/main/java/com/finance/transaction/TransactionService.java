@@ -0,0 +1,243 @@
+package com.finance.transaction;
+
+import com.finance.insight.InsightUpdateScheduler;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Write side of the transaction API: persists transactions, keeps the
+ * transaction cache current, queues every insert and delete for the derived
+ * insight data, bumps the user's data version and pushes new transactions to
+ * the live feed. SMS ingestion
+ * is idempotent per user and message: a resubmitted SMS returns the stored
+ * transaction and writes nothing.
+ */
+@Service
+public class TransactionService {
+  private final TransactionRepository repository;
+  private final TransactionParserService parserService;
+  private final InsightUpdateScheduler insightUpdates;
+  private final TransactionFeed feed;
+  private final TransactionCache cache;
+  private final SmsDeduplicator dedup;
+  private final DataVersions versions;
+
+  public TransactionService(TransactionRepository repository, TransactionParserService parserService,
+      InsightUpdateScheduler insightUpdates, TransactionFeed feed, TransactionCache cache, SmsDeduplicator dedup,
+      DataVersions versions) {
+    this.repository = repository;
+    this.parserService = parserService;
+    this.insightUpdates = insightUpdates;
+    this.feed = feed;
+    this.cache = cache;
+    this.dedup = dedup;
+    this.versions = versions;
+  }
+
+  public Transaction ingest(String userId, String rawMessage) {
+    String hash = dedup.hash(userId, rawMessage);
+    Transaction existing = hash != null ? findExisting(hash) : null;
+    if (existing != null) return existing;
+
+    Transaction t = parserService.parse(rawMessage);
+    t.setUserId(userId);
+    t.setContentHash(hash);
+    try {
+      return create(t);
+    } catch (DuplicateKeyException e) {
+      // Stored through another node or before this one started
+      Transaction stored = repository.findByContentHash(hash).orElseThrow(() -> e);
+      dedup.storedHit(1);
+      dedup.remember(List.of(stored));
+      return stored;
+    }
+  }
+
+  /**
+   * Parses the messages in parallel, stores every successfully parsed one with a
+   * single unordered bulk insert and refreshes each affected month's insight
+   * once. Messages already stored for the user, or repeated within the batch,
+   * come back as duplicates of the stored transaction.
+   */
+  public List<BatchItemResult> ingestBatch(String userId, List<String> rawMessages) {
+    int n = rawMessages.size();
+    String[] hashes = new String[n];
+    BatchItemResult[] results = new BatchItemResult[n];
+    Map<String, Integer> firstByHash = new HashMap<>();
+    List<String> maybeStored = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      String hash = dedup.hash(userId, rawMessages.get(i));
+      hashes[i] = hash;
+      if (hash == null || firstByHash.putIfAbsent(hash, i) != null || !dedup.mightExist(hash)) continue;
+      Transaction recent = dedup.recent(hash);
+      if (recent != null) {
+        results[i] = BatchItemResult.duplicate(i, recent);
+      } else {
+        maybeStored.add(hash);
+      }
+    }
+    // One lookup for every hash the filter could not rule out
+    if (!maybeStored.isEmpty()) {
+      List<Transaction> stored = repository.findByContentHashIn(maybeStored);
+      dedup.storedHit(stored.size());
+      dedup.falsePositive(maybeStored.size() - stored.size());
+      dedup.remember(stored);
+      for (Transaction t : stored) {
+        int i = firstByHash.get(t.getContentHash());
+        results[i] = BatchItemResult.duplicate(i, t);
+      }
+    }
+
+    IntStream.range(0, n).parallel()
+      .filter(i -> results[i] == null && (hashes[i] == null || firstByHash.get(hashes[i]) == i))
+      .forEach(i -> {
+        try {
+          Transaction t = parserService.parse(rawMessages.get(i));
+          t.setUserId(userId);
+          t.setContentHash(hashes[i]);
+          // Assigned up front so rows the unique index rejects can be told apart
+          t.setId(new ObjectId().toHexString());
+          results[i] = BatchItemResult.ok(i, t);
+        } catch (RuntimeException e) {
+          results[i] = BatchItemResult.failed(i, e.getMessage());
+        }
+      });
+
+    List<Integer> positions = new ArrayList<>();
+    List<Transaction> parsed = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      if (results[i] != null && results[i].success() && !results[i].duplicate()) {
+        positions.add(i);
+        parsed.add(results[i].transaction());
+      }
+    }
+    Set<Integer> rejected = repository.insertSkippingDuplicates(parsed);
+    if (!rejected.isEmpty()) {
+      resolveRejected(rejected, positions, parsed, results);
+    }
+    List<Transaction> inserted = new ArrayList<>(parsed.size());
+    for (int k = 0; k < parsed.size(); k++) {
+      if (!rejected.contains(k)) inserted.add(parsed.get(k));
+    }
+    if (!inserted.isEmpty()) {
+      cache.added(userId, inserted);
+      insightUpdates.added(userId, inserted);
+      versions.bump(userId);
+      feed.publish(userId, inserted);
+      dedup.remember(inserted);
+    }
+
+    for (int i = 0; i < n; i++) {
+      if (results[i] != null) continue;
+      BatchItemResult first = results[firstByHash.get(hashes[i])];
+      results[i] = first.success()
+        ? BatchItemResult.duplicate(i, first.transaction())
+        : BatchItemResult.failed(i, first.error());
+    }
+    return List.of(results);
+  }
+
+  // Stored concurrently, through another node or before this one started
+  private void resolveRejected(Set<Integer> rejected, List<Integer> positions, List<Transaction> parsed,
+      BatchItemResult[] results) {
+    List<String> hashes = rejected.stream().map(k -> parsed.get(k).getContentHash()).toList();
+    Map<String, Transaction> stored = new HashMap<>();
+    for (Transaction t : repository.findByContentHashIn(hashes)) {
+      stored.put(t.getContentHash(), t);
+    }
+    dedup.storedHit(stored.size());
+    dedup.remember(stored.values());
+    for (int k : rejected) {
+      int i = positions.get(k);
+      Transaction t = stored.get(parsed.get(k).getContentHash());
+      // Deleted again in the meantime
+      results[i] = t != null ? BatchItemResult.duplicate(i, t) : BatchItemResult.failed(i, "Could not store message");
+    }
+  }
+
+  private Transaction findExisting(String hash) {
+    if (!dedup.mightExist(hash)) return null;
+    Transaction recent = dedup.recent(hash);
+    if (recent != null) return recent;
+    Optional<Transaction> stored = repository.findByContentHash(hash);
+    if (stored.isEmpty()) {
+      dedup.falsePositive(1);
+      return null;
+    }
+    dedup.storedHit(1);
+    dedup.remember(List.of(stored.get()));
+    return stored.get();
+  }
+
+  public Transaction create(Transaction t) {
+    repository.save(t);
+    cache.added(t.getUserId(), List.of(t));
+    dedup.remember(List.of(t));
+
+    // Fold the transaction into its month's insight and its day/month rollups
+    insightUpdates.added(t.getUserId(), List.of(t));
+    versions.bump(t.getUserId());
+    feed.publish(t.getUserId(), List.of(t));
+    return t;
+  }
+
+  public void delete(Transaction t) {
+    repository.deleteById(t.getId());
+    cache.removed(t.getUserId(), List.of(t));
+    dedup.forget(List.of(t));
+
+    // Take the transaction back out of its month's insight and rollups
+    insightUpdates.removed(t.getUserId(), List.of(t));
+    versions.bump(t.getUserId());
+  }
+
+  /**
+   * Deletes the user's transactions among {@code ids} with one deleteMany;
+   * ids that do not exist or belong to someone else are skipped. Each affected
+   * month's insight is adjusted once.
+   */
+  public long deleteAll(String userId, Collection<String> ids) {
+    // Read first: the insight and rollup deltas need the amounts and categories
+    List<Transaction> found = repository.findByUserIdAndIdIn(userId, ids);
+    if (found.isEmpty()) return 0;
+    long deleted = repository.deleteByUserIdAndIdIn(userId, found.stream().map(Transaction::getId).toList());
+    cache.removed(userId, found);
+    dedup.forget(found);
+    insightUpdates.removed(userId, found);
+    versions.bump(userId);
+    return deleted;
+  }
+
+  /** The months holding the user's transactions dated {@code from..to}, as {@link #deleteRange} takes them. */
+  public List<YearMonth> monthsSpanned(String userId, LocalDate from, LocalDate to) {
+    return repository.monthsSpanned(userId, from, to);
+  }
+
+  /**
+   * Deletes the user's transactions dated {@code from..to} (inclusive, either
+   * side optional) without reading them. The {@code months} they spanned are
+   * marked for their next read to rebuild rather than rebuilt here, since an
+   * open range can cover years.
+   */
+  public long deleteRange(String userId, LocalDate from, LocalDate to, List<YearMonth> months) {
+    if (months.isEmpty()) return 0;
+    long deleted = repository.deleteRange(userId, from, to);
+    cache.evict(userId);
+    dedup.forget(userId, from, to);
+    insightUpdates.invalidate(userId, months);
+    versions.bump(userId);
+    return deleted;
+  }
+}
@@ -20,4 +20,6 @@ public class User {
   private String email;
   private String username;
   private String passwordHash;
+  // Demo template version last seeded for this user (demo account only)
+  private String demoDataVersion;
 }
@@ -0,0 +1,110 @@
+package com.finance.config;
+
+import com.finance.insight.InsightRepository;
+import com.finance.insight.RollupRepository;
+import com.finance.transaction.ReactiveTransactionRepositoryCustom;
+import com.finance.transaction.TransactionRepository;
+import com.finance.transaction.TransactionRepositoryCustom;
+import com.finance.user.UserRepository;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MongoIndexManagerTest {
+  private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+  private final MongoMappingContext mappingContext = new MongoMappingContext();
+  private final Map<String, List<Document>> filters = new HashMap<>();
+
+  @Test
+  void everyRepositoryLookupIsProbed() {
+    Map<Class<?>, String> repositories = Map.of(
+      TransactionRepository.class, "TransactionRepository",
+      TransactionRepositoryCustom.class, "TransactionRepository",
+      ReactiveTransactionRepositoryCustom.class, "ReactiveTransactionRepository",
+      InsightRepository.class, "InsightRepository",
+      RollupRepository.class, "RollupRepository",
+      UserRepository.class, "UserRepository");
+    List<String> methods = new ArrayList<>();
+    repositories.forEach((type, name) -> {
+      for (Method method : type.getDeclaredMethods()) {
+        methods.add(name + "." + method.getName());
+      }
+    });
+    // Inserts only
+    methods.remove("TransactionRepository.insertSkippingDuplicates");
+
+    assertThat(MongoIndexManager.probes()).extracting(MongoIndexManager.QueryProbe::name)
+      .containsAll(methods)
+      .contains("TransactionCodec.merchantDictionary", "RollupService.find");
+  }
+
+  @Test
+  void explainsTheQueriesAsTheRepositoriesMapThem() {
+    stubPlans("IXSCAN");
+
+    new MongoIndexManager(mongoTemplate, mappingContext, "fail").verifyQueryPlans();
+
+    assertThat(filters.get("TransactionRepository.findByContentHash")).containsExactly(
+      new Document("contentHash", "index-check"));
+    Document page = filters.get("TransactionRepository.findPage").get(0);
+    assertThat(page.toJson()).contains("\"_id\": {\"$lt\": {\"$oid\"").doesNotContain("\"id\"");
+    assertThat(filters.get("TransactionRepository.findRange").get(0).get("transactionDate", Document.class).get("$gte"))
+      .isInstanceOf(Date.class);
+    assertThat(filters.get("TransactionCodec.merchantDictionary")).containsExactly(
+      new Document("_id", "index-check"));
+  }
+
+  @Test
+  void collectionScansFailTheCheck() {
+    stubPlans("COLLSCAN");
+
+    assertThatThrownBy(() -> new MongoIndexManager(mongoTemplate, mappingContext, "fail").verifyQueryPlans())
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("TransactionRepository.findByContentHash");
+  }
+
+  @SuppressWarnings("unchecked")
+  private void stubPlans(String stage) {
+    MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+    mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+    MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+    converter.setCustomConversions(conversions);
+    converter.afterPropertiesSet();
+    when(mongoTemplate.getConverter()).thenReturn(converter);
+    when(mongoTemplate.getCollectionName(any())).thenAnswer(inv ->
+      mappingContext.getRequiredPersistentEntity(inv.<Class<?>>getArgument(0)).getCollection());
+
+    // Probes run in order, so each captured filter is filed under the probe that sent it
+    List<MongoIndexManager.QueryProbe> probes = MongoIndexManager.probes();
+    int[] next = {0};
+    MongoCollection<Document> collection = mock(MongoCollection.class);
+    FindIterable<Document> found = mock(FindIterable.class);
+    when(mongoTemplate.getCollection(any())).thenReturn(collection);
+    when(collection.find(any(Bson.class))).thenAnswer(inv -> {
+      filters.computeIfAbsent(probes.get(next[0]++).name(), k -> new ArrayList<>()).add(inv.getArgument(0));
+      return found;
+    });
+    when(found.sort(any())).thenReturn(found);
+    when(found.explain()).thenReturn(
+      new Document("queryPlanner", new Document("winningPlan", new Document("stage", stage))));
+  }
+}
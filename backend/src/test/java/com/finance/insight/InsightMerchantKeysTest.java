@@ -0,0 +1,62 @@
+package com.finance.insight;
+
+import com.finance.transaction.Transaction;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InsightMerchantKeysTest {
+  private final MappingMongoConverter converter =
+    new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+
+  @Test
+  void savesInsightWithDottedAndNullMerchants() {
+    YearMonth ym = YearMonth.of(2024, 11);
+    Insight insight = InsightCalculator.summarize("u1", ym, List.of(
+      debit("D.Mart", 500), debit(null, 120), debit("", 30), debit("$pay", 20), debit("50%.off", 10),
+      debit("D.Mart", 250)));
+
+    // The mapping converter is what rejected the dotted and null keys on save
+    Document stored = new Document();
+    converter.write(insight, stored);
+    Insight read = converter.read(Insight.class, stored);
+
+    for (String key : read.getMerchant_totals().keySet()) {
+      assertThat(InsightCalculator.isFieldSafe(key)).as(key).isTrue();
+    }
+    Map<String, Double> top = read.getTop_merchants().stream()
+      .collect(Collectors.toMap(m -> String.valueOf(m.getMerchant()), Insight.TopMerchant::getAmount));
+    assertThat(top).containsExactlyInAnyOrderEntriesOf(Map.of(
+      "D.Mart", 750.0, "null", 120.0, "", 30.0, "$pay", 20.0, "50%.off", 10.0));
+  }
+
+  @Test
+  void merchantKeysRoundTrip() {
+    for (String merchant : new String[] {"SWIGGY", "D.Mart", "$", "%", "%2E", "%N", "%E", "a.b.c", "", null}) {
+      String key = InsightCalculator.merchantKey(merchant);
+      assertThat(InsightCalculator.isFieldSafe(key)).as(key).isTrue();
+      assertThat(InsightCalculator.merchantName(key)).isEqualTo(merchant);
+    }
+  }
+
+  private static Transaction debit(String merchant, double amount) {
+    return Transaction.builder()
+      .userId("u1")
+      .type("debit")
+      .category("Shopping")
+      .merchant(merchant)
+      .amount(amount)
+      .transactionDate(LocalDate.of(2024, 11, 5))
+      .build();
+  }
+}
@@ -0,0 +1,87 @@
+package com.finance.insight;
+
+import com.finance.transaction.DataVersions;
+import com.finance.transaction.Transaction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class InsightServiceTest {
+  private static final YearMonth MONTH = YearMonth.of(2024, 11);
+
+  private final InsightRepository insightRepo = mock(InsightRepository.class);
+  private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+  private final RollupService rollupService = mock(RollupService.class);
+  @SuppressWarnings("unchecked")
+  private final ObjectProvider<InsightUpdateScheduler> provider = mock(ObjectProvider.class);
+  private InsightService service;
+  private InsightUpdateScheduler scheduler;
+
+  @BeforeEach
+  void setUp() {
+    service = spy(new InsightService(insightRepo, mongoTemplate, rollupService, mock(MonthAggregator.class),
+      new SimpleMeterRegistry(), 100, Duration.ofMinutes(5), 36, provider));
+    // A write queues its delta for the window after the transaction is already stored
+    scheduler = new InsightUpdateScheduler(service, rollupService, new DataVersions(100, Duration.ofMinutes(1)),
+      new SimpleMeterRegistry(), true, Duration.ofMillis(300), 2, 100, Duration.ofSeconds(2));
+    when(provider.getObject()).thenReturn(scheduler);
+    doReturn(new Insight()).when(service).generateAndUpsert(anyString(), anyString());
+  }
+
+  @AfterEach
+  void shutdown() {
+    scheduler.shutdown();
+  }
+
+  @Test
+  void readOfADirtyMonthDropsTheDeltaItsRebuildAlreadyCounts() {
+    Insight dirty = new Insight();
+    dirty.setDirty(true);
+    when(insightRepo.findByUserIdAndMonth("u1", MONTH.toString())).thenReturn(Optional.of(dirty));
+
+    scheduler.added("u1", List.of(debit()));
+    service.get("u1", MONTH.toString(), false);
+
+    verify(service, after(600).never()).applyTransactions(anyString(), any());
+    verify(rollupService, never()).apply(anyString(), any(), anyInt());
+    verify(service, times(1)).generateAndUpsert("u1", MONTH.toString());
+  }
+
+  @Test
+  void trendOfAForgottenMonthDropsTheDeltaItsRebuildAlreadyCounts() {
+    when(rollupService.find(eq("u1"), eq(Rollup.MONTH), anyString(), anyString())).thenReturn(List.of());
+    when(mongoTemplate.exists(any(Query.class), eq(Transaction.class))).thenReturn(true);
+
+    scheduler.added("u1", List.of(debit()));
+    service.trend("u1", MONTH, MONTH, false);
+
+    verify(service, after(600).never()).applyTransactions(anyString(), any());
+    verify(rollupService, never()).apply(anyString(), any(), anyInt());
+    verify(service, times(1)).generateAndUpsert("u1", MONTH.toString());
+  }
+
+  private static Transaction debit() {
+    return Transaction.builder()
+      .userId("u1")
+      .type("debit")
+      .category("Shopping")
+      .merchant("SWIGGY")
+      .amount(100)
+      .transactionDate(MONTH.atDay(5))
+      .build();
+  }
+}
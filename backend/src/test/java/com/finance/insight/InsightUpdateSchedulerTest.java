@@ -0,0 +1,181 @@
+package com.finance.insight;
+
+import com.finance.transaction.DataVersions;
+import com.finance.transaction.Transaction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class InsightUpdateSchedulerTest {
+  private static final YearMonth MONTH = YearMonth.of(2024, 11);
+
+  private final InsightService insightService = mock(InsightService.class);
+  private final RollupService rollupService = mock(RollupService.class);
+  private InsightUpdateScheduler scheduler;
+
+  @AfterEach
+  void shutdown() {
+    if (scheduler != null) scheduler.shutdown();
+  }
+
+  @Test
+  void queuedChangesAreDroppedByRebuild() {
+    scheduler = scheduler(Duration.ofMillis(300));
+
+    scheduler.added("u1", List.of(debit(100)));
+    scheduler.rebuild("u1", MONTH);
+
+    verify(insightService, after(600).never()).applyTransactions(anyString(), any());
+    verify(rollupService, never()).apply(anyString(), any(), anyInt());
+    verify(insightService, times(1)).generateAndUpsert("u1", MONTH.toString());
+  }
+
+  @Test
+  void rebuildWaitsForChangesBeingApplied() throws Exception {
+    scheduler = scheduler(Duration.ZERO);
+    CountDownLatch applying = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(inv -> {
+      applying.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      return null;
+    }).when(insightService).applyTransactions(anyString(), any());
+
+    scheduler.added("u1", List.of(debit(100)));
+    assertThat(applying.await(5, TimeUnit.SECONDS)).isTrue();
+    CompletableFuture<Insight> rebuild = CompletableFuture.supplyAsync(() -> scheduler.rebuild("u1", MONTH));
+
+    verify(insightService, after(200).never()).generateAndUpsert(anyString(), anyString());
+    release.countDown();
+    rebuild.get(5, TimeUnit.SECONDS);
+
+    InOrder order = inOrder(insightService, rollupService);
+    order.verify(insightService).applyTransactions(anyString(), any());
+    order.verify(rollupService).apply(anyString(), any(), eq(1));
+    order.verify(insightService).generateAndUpsert("u1", MONTH.toString());
+  }
+
+  @Test
+  void changesDuringRebuildRebuildAgainInsteadOfApplying() throws Exception {
+    scheduler = scheduler(Duration.ZERO);
+    CountDownLatch rebuilding = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger rebuilds = new AtomicInteger();
+    when(insightService.generateAndUpsert(anyString(), anyString())).thenAnswer(inv -> {
+      if (rebuilds.incrementAndGet() == 1) {
+        rebuilding.countDown();
+        release.await(5, TimeUnit.SECONDS);
+      }
+      return new Insight();
+    });
+
+    CompletableFuture<Insight> rebuild = CompletableFuture.supplyAsync(() -> scheduler.rebuild("u1", MONTH));
+    assertThat(rebuilding.await(5, TimeUnit.SECONDS)).isTrue();
+    // Saved while the rebuild was aggregating: it may or may not have been counted
+    scheduler.added("u1", List.of(debit(100)));
+    scheduler.removed("u1", List.of(debit(40)));
+    release.countDown();
+    rebuild.get(5, TimeUnit.SECONDS);
+
+    assertThat(scheduler.await("u1", MONTH)).isTrue();
+    assertThat(rebuilds.get()).isEqualTo(2);
+    verify(insightService, after(200).never()).applyTransactions(anyString(), any());
+    verify(insightService, never()).revertTransactions(anyString(), any());
+    verify(insightService, never()).markDirty(anyString(), any(YearMonth.class));
+  }
+
+  @Test
+  void inlineChangesAreWaitedForToo() throws Exception {
+    scheduler = new InsightUpdateScheduler(insightService, rollupService, versions(), new SimpleMeterRegistry(),
+      false, Duration.ZERO, 1, 100, Duration.ofSeconds(2));
+    CountDownLatch applying = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(inv -> {
+      applying.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      return null;
+    }).when(insightService).revertTransactions(anyString(), any());
+
+    CompletableFuture<Void> write = CompletableFuture.runAsync(() -> scheduler.removed("u1", List.of(debit(10))));
+    assertThat(applying.await(5, TimeUnit.SECONDS)).isTrue();
+    CompletableFuture<Insight> rebuild = CompletableFuture.supplyAsync(() -> scheduler.rebuild("u1", MONTH));
+
+    verify(insightService, after(200).never()).generateAndUpsert(anyString(), anyString());
+    release.countDown();
+    write.get(5, TimeUnit.SECONDS);
+    rebuild.get(5, TimeUnit.SECONDS);
+    verify(insightService, times(1)).generateAndUpsert("u1", MONTH.toString());
+  }
+
+  @Test
+  void invalidatedMonthsAreLeftForTheNextRead() {
+    scheduler = scheduler(Duration.ofMillis(300));
+    List<YearMonth> months = List.of(MONTH.minusMonths(1), MONTH);
+
+    scheduler.added("u1", List.of(debit(100)));
+    scheduler.invalidate("u1", months);
+
+    assertThat(scheduler.await("u1", MONTH)).isTrue();
+    verify(insightService).markDirty("u1", months);
+    verify(rollupService).forgetMonths("u1", months);
+    verify(insightService, after(600).never()).applyTransactions(anyString(), any());
+    verify(insightService, never()).generateAndUpsert(anyString(), anyString());
+  }
+
+  @Test
+  void invalidatedMonthsBeingAppliedAreMarkedAgainAfterwards() throws Exception {
+    scheduler = scheduler(Duration.ZERO);
+    CountDownLatch applying = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(inv -> {
+      applying.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      return null;
+    }).when(insightService).applyTransactions(anyString(), any());
+
+    scheduler.added("u1", List.of(debit(100)));
+    assertThat(applying.await(5, TimeUnit.SECONDS)).isTrue();
+    scheduler.invalidate("u1", List.of(MONTH));
+
+    // The delta lands after the mark and may resurrect deleted rows, so the month is marked again
+    verify(insightService, after(200).never()).markDirty(anyString(), any(YearMonth.class));
+    release.countDown();
+    verify(insightService, timeout(5000)).markDirty("u1", MONTH);
+    verify(rollupService, timeout(5000)).forgetMonth("u1", MONTH);
+  }
+
+  private InsightUpdateScheduler scheduler(Duration window) {
+    return new InsightUpdateScheduler(insightService, rollupService, versions(), new SimpleMeterRegistry(),
+      true, window, 2, 100, Duration.ofSeconds(2));
+  }
+
+  private static DataVersions versions() {
+    return new DataVersions(100, Duration.ofMinutes(1));
+  }
+
+  private static Transaction debit(double amount) {
+    return Transaction.builder()
+      .userId("u1")
+      .type("debit")
+      .category("Shopping")
+      .merchant("SWIGGY")
+      .amount(amount)
+      .transactionDate(MONTH.atDay(5))
+      .build();
+  }
+}
@@ -0,0 +1,68 @@
+package com.finance.transaction;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReactiveTransactionRepositoryImplTest {
+  private final MongoTemplate blocking = mock(MongoTemplate.class);
+  private final ReactiveMongoTemplate reactive = mock(ReactiveMongoTemplate.class);
+  private final TransactionCodec codec = new TransactionCodec(blocking, reactive, true, 100);
+
+  @Test
+  void decodesCompactMerchantsWithoutBlockingReads() {
+    MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+    MongoMappingContext mappingContext = new MongoMappingContext();
+    mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+    MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+    converter.setCustomConversions(conversions);
+    converter.afterPropertiesSet();
+    when(reactive.getConverter()).thenReturn(converter);
+    when(reactive.getCollectionName(Transaction.class)).thenReturn("transactions");
+    when(reactive.find(any(Query.class), eq(Document.class), eq("transactions"))).thenReturn(Flux.just(
+      stored("t1", 1, 0), stored("t2", 2, 1), stored("t3", 1, 2)));
+    when(reactive.findById("u1", MerchantDictionary.class))
+      .thenReturn(Mono.just(new MerchantDictionary("u1", List.of("SWIGGY", "D.Mart"))))
+      .thenReturn(Mono.just(new MerchantDictionary("u1", List.of("SWIGGY", "D.Mart", "Uber"))));
+
+    List<Transaction> txs = new ReactiveTransactionRepositoryImpl(reactive, codec)
+      .streamByUserId("u1", null, null)
+      .collectList()
+      .block();
+
+    assertThat(txs).extracting(Transaction::getMerchant).containsExactly("SWIGGY", "D.Mart", "Uber");
+    assertThat(txs).extracting(Transaction::getType).containsExactly("debit", "credit", "debit");
+    assertThat(txs.get(0).getTransactionDate()).isEqualTo(LocalDate.of(2024, 11, 5));
+    // The first code loads the dictionary, the second is cached, the third was added later
+    verify(reactive, times(2)).findById("u1", MerchantDictionary.class);
+    verifyNoInteractions(blocking);
+  }
+
+  private static Document stored(String id, int type, int merchant) {
+    return new Document("_id", id)
+      .append("userId", "u1")
+      .append("amount", 10.0)
+      .append("type", type)
+      .append("category", 1)
+      .append("merchant", merchant)
+      .append("transactionDate", Date.from(LocalDate.of(2024, 11, 5).atStartOfDay().toInstant(ZoneOffset.UTC)));
+  }
+}
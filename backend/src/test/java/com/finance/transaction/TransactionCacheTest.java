@@ -0,0 +1,79 @@
+package com.finance.transaction;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TransactionCacheTest {
+  private final TransactionRepository repository = mock(TransactionRepository.class);
+
+  @Test
+  void pagesNeverLoadTheUser() {
+    TransactionCache cache = cache(1000, Duration.ofMinutes(10));
+    when(repository.streamByUserId(eq("u1"), any(), any())).thenAnswer(inv -> Stream.of(tx()));
+
+    assertThat(cache.findPage("u1", null, null, null, 50)).isEmpty();
+    verifyNoInteractions(repository);
+
+    assertThat(cache.find("u1", LocalDate.now().withDayOfMonth(1), null)).hasValueSatisfying(rows ->
+      assertThat(rows).hasSize(1));
+    assertThat(cache.findPage("u1", LocalDate.now().withDayOfMonth(1), null, null, 50)).hasValueSatisfying(rows ->
+      assertThat(rows).hasSize(1));
+    verify(repository, times(1)).streamByUserId(eq("u1"), any(), any());
+  }
+
+  @Test
+  void uncacheableUsersOutliveTheTtl() throws Exception {
+    TransactionCache cache = cache(1, Duration.ofMillis(50));
+    when(repository.streamByUserId(eq("u1"), any(), any()))
+      .thenAnswer(inv -> Stream.of(tx(), tx()));
+
+    assertThat(cache.find("u1", null, null)).isEmpty();
+    Thread.sleep(150);
+    assertThat(cache.find("u1", null, null)).isEmpty();
+    verify(repository, times(1)).streamByUserId(eq("u1"), any(), any());
+  }
+
+  @Test
+  void findIncludesBothBounds() {
+    TransactionCache cache = cache(1000, Duration.ofMinutes(10));
+    LocalDate from = LocalDate.now().minusMonths(2).withDayOfMonth(10);
+    LocalDate to = from.plusDays(5);
+    when(repository.streamByUserId(eq("u1"), any(), any())).thenAnswer(inv -> Stream.of(
+      tx(to.plusDays(1)), tx(to), tx(from), tx(from.minusDays(1))));
+
+    assertThat(cache.find("u1", from, to)).hasValueSatisfying(rows ->
+      assertThat(rows).extracting(Transaction::getTransactionDate).containsExactly(to, from));
+  }
+
+  private TransactionCache cache(int maxRowsPerUser, Duration ttl) {
+    return new TransactionCache(repository, new SimpleMeterRegistry(), true, DataSize.ofMegabytes(1), 13,
+      maxRowsPerUser, ttl, Duration.ofHours(1));
+  }
+
+  private static Transaction tx() {
+    return tx(LocalDate.now().withDayOfMonth(1));
+  }
+
+  private static Transaction tx(LocalDate date) {
+    return Transaction.builder()
+      .id(new ObjectId().toHexString())
+      .userId("u1")
+      .type("debit")
+      .category("Shopping")
+      .merchant("SWIGGY")
+      .amount(10)
+      .transactionDate(date)
+      .build();
+  }
+}
@@ -0,0 +1,80 @@
+package com.finance.transaction;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionColumnsTest {
+  private static final LocalDate WINDOW = LocalDate.of(2024, 1, 1);
+  private static final Comparator<Transaction> NEWEST_FIRST = Comparator
+    .comparing(Transaction::getTransactionDate)
+    .thenComparing(t -> new ObjectId(t.getId()))
+    .reversed();
+
+  @Test
+  void appendsLeaveEarlierSnapshotsAsTheyWere() {
+    Transaction first = tx(WINDOW.plusDays(1), "Swiggy");
+    TransactionColumns one = TransactionColumns.of(WINDOW, true, List.of(first));
+    Transaction second = tx(WINDOW.plusDays(2), "Zomato");
+    TransactionColumns two = one.with(List.of(second), List.of());
+    Transaction third = tx(WINDOW.plusDays(2), "Uber");
+    TransactionColumns three = two.with(List.of(third), List.of());
+
+    assertThat(ids(one)).containsExactly(first.getId());
+    assertThat(ids(two)).containsExactly(second.getId(), first.getId());
+    assertThat(ids(three)).containsExactly(third.getId(), second.getId(), first.getId());
+    assertThat(three.get("u1", 0).getMerchant()).isEqualTo("Uber");
+    assertThat(one.get("u1", 0).getMerchant()).isEqualTo("Swiggy");
+
+    // A second write on top of the same snapshot cannot reuse the space the first one took
+    Transaction other = tx(WINDOW.plusDays(3), "Ola");
+    TransactionColumns branch = two.with(List.of(other), List.of());
+    assertThat(ids(branch)).containsExactly(other.getId(), second.getId(), first.getId());
+    assertThat(ids(three)).containsExactly(third.getId(), second.getId(), first.getId());
+  }
+
+  @Test
+  void mixedWritesKeepNewestFirstOrder() {
+    Random random = new Random(42);
+    List<Transaction> expected = new ArrayList<>();
+    TransactionColumns columns = TransactionColumns.of(WINDOW, true, List.of());
+    for (int round = 0; round < 500; round++) {
+      List<Transaction> added = new ArrayList<>();
+      List<Transaction> removed = new ArrayList<>();
+      // Mostly today's rows, with backdated ones and deletes mixed in
+      int day = random.nextInt(10) < 8 ? round : random.nextInt(round + 1);
+      added.add(tx(WINDOW.plusDays(day), "M" + random.nextInt(20)));
+      if (!expected.isEmpty() && random.nextInt(10) == 0) {
+        removed.add(expected.get(random.nextInt(expected.size())));
+      }
+      columns = columns.with(added, removed);
+      expected.addAll(added);
+      expected.removeAll(removed);
+      expected.sort(NEWEST_FIRST);
+
+      assertThat(ids(columns)).containsExactlyElementsOf(expected.stream().map(Transaction::getId).toList());
+    }
+    assertThat(columns.get("u1", 0, columns.size()))
+      .extracting(Transaction::getMerchant)
+      .containsExactlyElementsOf(expected.stream().map(Transaction::getMerchant).toList());
+  }
+
+  private static List<String> ids(TransactionColumns columns) {
+    return columns.get("u1", 0, columns.size()).stream().map(Transaction::getId).toList();
+  }
+
+  private static Transaction tx(LocalDate date, String merchant) {
+    return Transaction.builder()
+      .id(new ObjectId().toHexString())
+      .userId("u1")
+      .type("debit")
+      .merchant(merchant)
+      .amount(10)
+      .transactionDate(date)
+      .build();
+  }
+}
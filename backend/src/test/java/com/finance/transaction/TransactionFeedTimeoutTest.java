@@ -0,0 +1,112 @@
+package com.finance.transaction;
+
+import com.finance.security.AuthUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import reactor.core.publisher.Flux;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/** Runs on a real Tomcat, whose async timeout is what used to cut live feeds after 30 seconds. */
+@SpringBootTest(classes = TransactionFeedTimeoutTest.App.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class TransactionFeedTimeoutTest {
+
+  @SpringBootConfiguration
+  @ImportAutoConfiguration({ServletWebServerFactoryAutoConfiguration.class, DispatcherServletAutoConfiguration.class,
+    WebMvcAutoConfiguration.class, HttpMessageConvertersAutoConfiguration.class, JacksonAutoConfiguration.class,
+    TaskExecutionAutoConfiguration.class})
+  @Import({TransactionFeedController.class, TransactionFeed.class})
+  static class App {
+    @Bean
+    MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
+  }
+
+  @LocalServerPort
+  int port;
+
+  @Autowired
+  TransactionFeed feed;
+
+  @MockBean
+  ReactiveTransactionRepository repository;
+
+  @MockBean
+  AuthUtil authUtil;
+
+  @Test
+  void liveFeedStaysOpenPastThirtySeconds() throws Exception {
+    when(authUtil.getUserId(any())).thenReturn("u1");
+    when(repository.streamByUserId(eq("u1"), any(), any())).thenReturn(Flux.just(transaction("t0")));
+
+    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/transactions/feed?live=true"))
+      .header("Accept", "application/x-ndjson")
+      .build();
+    HttpResponse<InputStream> response = HttpClient.newHttpClient()
+      .sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+      .get(10, TimeUnit.SECONDS);
+    assertThat(response.statusCode()).isEqualTo(200);
+
+    try (BufferedReader lines = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+      assertThat(CompletableFuture.supplyAsync(() -> readLine(lines)).get(10, TimeUnit.SECONDS)).contains("\"t0\"");
+      feed.publish("u1", List.of(transaction("t1")));
+      assertThat(CompletableFuture.supplyAsync(() -> readLine(lines)).get(5, TimeUnit.SECONDS)).contains("\"t1\"");
+
+      Thread.sleep(32_000);
+      feed.publish("u1", List.of(transaction("t2")));
+      assertThat(CompletableFuture.supplyAsync(() -> readLine(lines)).get(5, TimeUnit.SECONDS)).contains("\"t2\"");
+    }
+  }
+
+  private static String readLine(BufferedReader reader) {
+    try {
+      return reader.readLine();
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Transaction transaction(String id) {
+    return Transaction.builder()
+      .id(id)
+      .userId("u1")
+      .type("debit")
+      .category("Shopping")
+      .merchant("SWIGGY")
+      .amount(10)
+      .transactionDate(LocalDate.now())
+      .build();
+  }
+}
@@ -0,0 +1,131 @@
+package com.finance.transaction;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Every parser mode must read the same fields from the same SMS, whatever the JDK's regex defaults. */
+class TransactionParserParityTest {
+  private static final TransactionParserService REGEX = new TransactionParserService("regex", new SimpleMeterRegistry());
+  private static final TransactionParserService LEAN = new TransactionParserService("lean", new SimpleMeterRegistry());
+  // Every hit is read by position only, nothing is re-parsed to hide a wrong template
+  private static final TransactionParserService TEMPLATE =
+    new TransactionParserService("template", new SimpleMeterRegistry(), 10_000, 2, 0.0);
+
+  static Stream<String> corpus() {
+    return Stream.of(
+      "Rs.500 debited from A/c XX1234 at SWIGGY on 12-11-24. Avl Bal: Rs 10,234.50",
+      "Rs.740 debited from A/c XX9876 at ZOMATO on 03-10-24. Avl Bal: Rs 9,494.50",
+      "INR 1,200.00 spent at Amazon on 2024-11-05. Available balance INR 5,000",
+      "INR 89.99 spent at Flipkart on 2024-1-9. Available balance INR 4,910.01",
+      "₹250 paid to Uber on 05/11/24",
+      "₹ 1,250.5 paid to Ola on 5/1/24",
+      "Your a/c credited with 45,000 INR salary on 01-11-2024",
+      "Salary CREDITED INR 50000 on 2024/1/31",
+      "CREDİT of Rs 500 received from Ramesh",
+      "Withdrawn 2,000 Rs at ATM 123-4-56",
+      "Spent ₹80 at Cafe Coffee Day,on 3/7/24",
+      "Paid 120rs to Rapido_12-11-24",
+      "Rs 99 debited 12-11-24a at Netflix",
+      "Rs 10 at ATM on 31-02-24",
+      "Rs 10 at Store on 32-01-24",
+      "Rs 10 at Store on 0000-01-01",
+      "Rs 5.5.5 at Pharmacy",
+      "1,2.3.4 Rs moved via UPI",
+      "Rs..5 spent. Bal 20",
+      "Rs 20 paid\tto\tOla\ton 1-1-24",
+      "Rs 20 at Swiggy",
+      "  Leading Spaces Rs 20",
+      "no amount here at all",
+      "ÉLECTRICITÉ bill Rs 900 paid",
+      "𝐀𝐦𝐚𝐳𝐨𝐧 order Rs 30",
+      // Non-ASCII letters, digits and combining marks touching a date
+      "₹ 320 खर्च दिनांक12-11-24 को SWIGGY पर",
+      "Café12-11-24 Rs 40",
+      "Rs 75 at Zomato on 12-11-24́",
+      "Rs 75 at Zomato on 12-11-24́́ ok",
+      "Rs 100 on 12-11-24٣",
+      "Rs 100 on ٣12-11-24",
+      "Rs 100 on é́12-11-24",
+      "Bal: INR 1,234.5 after Rs 100 debit on 2024-12-31");
+  }
+
+  @BeforeAll
+  static void learnTemplates() {
+    // Two full parses confirm a layout; the third pass in the test is read by position
+    for (int pass = 0; pass < 2; pass++) {
+      corpus().forEach(sms -> outcome(TEMPLATE, sms));
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("corpus")
+  void leanReadsWhatRegexReads(String sms) {
+    assertThat(outcome(LEAN, sms)).isEqualTo(outcome(REGEX, sms));
+  }
+
+  @ParameterizedTest
+  @MethodSource("corpus")
+  void templatesReadWhatRegexReads(String sms) {
+    assertThat(outcome(TEMPLATE, sms)).isEqualTo(outcome(REGEX, sms));
+  }
+
+  // Pinned rather than compared, so the test also fails if the regex's boundary depends on the JDK
+  @ParameterizedTest
+  @MethodSource("nonAsciiNeighbours")
+  void nonAsciiNeighboursDoNotHideDates(String sms) {
+    for (TransactionParserService parser : List.of(REGEX, LEAN, TEMPLATE)) {
+      assertThat(parser.parse(sms).getTransactionDate()).isEqualTo(LocalDate.of(2024, 11, 12));
+    }
+  }
+
+  static Stream<String> nonAsciiNeighbours() {
+    return corpus().filter(sms -> sms.contains("12-11-24") && !sms.contains("_12") && !sms.contains("24a"));
+  }
+
+  // The plain message makes its template trusted, so the glued one is read by position unless a slot check stops it
+  @ParameterizedTest
+  @MethodSource("gluedTokens")
+  void templatesReadGluedTokensAsRegexDoes(String plain, String glued) {
+    TransactionParserService template =
+      new TransactionParserService("template", new SimpleMeterRegistry(), 10_000, 2, 0.0);
+    for (int pass = 0; pass < 2; pass++) {
+      outcome(template, plain);
+    }
+    assertThat(outcome(template, glued)).isEqualTo(outcome(REGEX, glued));
+    assertThat(outcome(template, plain)).isEqualTo(outcome(REGEX, plain));
+  }
+
+  static Stream<Arguments> gluedTokens() {
+    return Stream.of(
+      Arguments.of("12/03/24 Txn 1,234", "at05/03/24 Txn 1,234Rs"),
+      Arguments.of("XX12 2024", "Swiggy1INR 2024"),
+      Arguments.of("2024/12/01 1,234", "2024/13/01 Bal1,234"),
+      Arguments.of("UPI05/03/24 XX1234", "UPI05/03/24at XX1234"),
+      Arguments.of("05/03/24 XX1234", "UPI05/03/24at XX1234"),
+      Arguments.of("Rs 20 at Swiggy on 1-1-24", "Rs 20 at Swiggy on 1-13-24"),
+      Arguments.of("Rs 20 at Swiggy on 1-1-24", "Rs 5.5.5 at Swiggy on 1-1-24"),
+      Arguments.of("Rs 20 at Swiggy on 1-1-24", "Rs 20Rs at Swiggy on 1-1-24"),
+      Arguments.of("Rs 20 paid to Ola. Bal Rs 100", "Rs 20 paid to Ola. Bal Rs 1,00Rs"),
+      Arguments.of("Rs 20 paid to Ola Cabs 12 on 1-1-24", "Rs 20 paid to Ola Cabs 12at on 1-1-24"));
+  }
+
+  private static List<Object> outcome(TransactionParserService parser, String sms) {
+    try {
+      Transaction t = parser.parse(sms);
+      return Arrays.asList(t.getAmount(), t.getMerchant(), t.getCategory(), t.getType(),
+        t.getTransactionDate(), t.getBalance());
+    } catch (RuntimeException e) {
+      return List.of(e.getClass());
+    }
+  }
+}
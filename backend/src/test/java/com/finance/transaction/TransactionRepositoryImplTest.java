@@ -0,0 +1,56 @@
+package com.finance.transaction;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TransactionRepositoryImplTest {
+  private static final LocalDate FROM = LocalDate.of(2024, 11, 1);
+  private static final LocalDate TO = LocalDate.of(2024, 11, 30);
+
+  private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+  private final TransactionRepositoryImpl repository = new TransactionRepositoryImpl(mongoTemplate);
+
+  @Test
+  void listPagesAndStreamsFilterTheSameInclusiveRange() {
+    when(mongoTemplate.stream(any(Query.class), eq(Transaction.class))).thenReturn(Stream.empty());
+    Document inclusive = new Document("userId", "u1")
+      .append("transactionDate", new Document("$gte", FROM).append("$lte", TO));
+
+    repository.findRange("u1", FROM, TO);
+    repository.findPage("u1", FROM, TO, null, 50);
+    repository.streamByUserId("u1", FROM, TO).close();
+
+    ArgumentCaptor<Query> found = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate, times(2)).find(found.capture(), eq(Transaction.class));
+    ArgumentCaptor<Query> streamed = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).stream(streamed.capture(), eq(Transaction.class));
+    List<Query> queries = List.of(found.getAllValues().get(0), found.getAllValues().get(1), streamed.getValue());
+    assertThat(queries).extracting(Query::getQueryObject).containsOnly(inclusive);
+    assertThat(queries).extracting(Query::getSortObject).containsOnly(
+      new Document("transactionDate", -1).append("id", -1));
+  }
+
+  @Test
+  void eitherBoundMayBeLeftOut() {
+    repository.findRange("u1", FROM, null);
+    repository.findRange("u1", null, TO);
+
+    ArgumentCaptor<Query> found = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate, times(2)).find(found.capture(), eq(Transaction.class));
+    assertThat(found.getAllValues()).extracting(Query::getQueryObject).containsExactly(
+      new Document("userId", "u1").append("transactionDate", new Document("$gte", FROM)),
+      new Document("userId", "u1").append("transactionDate", new Document("$lte", TO)));
+  }
+}
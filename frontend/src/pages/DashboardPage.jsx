@@ -36,7 +36,7 @@ export function DashboardPage() {
     }
 
     try {
-      const insightData = await apiFetch(`/api/insights?month=${month}`);
+      const insightData = await apiFetch(`/api/insights?month=${month}&await=true`);
       setInsight(insightData || null);
     } catch (err) {
       console.error("Failed to fetch insights:", err);
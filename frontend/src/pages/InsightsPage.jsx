@@ -27,7 +27,7 @@ export function InsightsPage() {
     setLoading(true);
 
     try {
-      const data = await apiFetch(`/api/insights?month=${selectedMonth}`);
+      const data = await apiFetch(`/api/insights?month=${selectedMonth}&await=true`);
       setInsight(data);
     } catch {
       setInsight(null);
@@ -39,7 +39,7 @@ export function InsightsPage() {
     setGenerating(true);
 
     try {
-      await apiFetch(`/api/insights?month=${selectedMonth}`, { method: 'GET' });
+      await apiFetch(`/api/insights?month=${selectedMonth}&refresh=true`, { method: 'GET' });
       await loadInsight();
     } catch (error) {
       console.error('Failed to generate insights:', error);